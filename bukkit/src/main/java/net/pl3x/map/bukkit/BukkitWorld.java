@@ -32,12 +32,14 @@ import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.biome.BiomeManager;
+import net.minecraft.world.level.biome.BiomeSpecialEffects;
 import net.pl3x.map.core.Pl3xMap;
 import net.pl3x.map.core.configuration.ColorsConfig;
 import net.pl3x.map.core.markers.Point;
 import net.pl3x.map.core.player.Player;
 import net.pl3x.map.core.util.Colors;
 import net.pl3x.map.core.util.Mathf;
+import net.pl3x.map.core.world.Biome.GrassModifier;
 import net.pl3x.map.core.world.World;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
@@ -66,13 +68,16 @@ public class BukkitWorld extends World {
             Biome biome = entry.getValue();
             float temperature = Mathf.clamp(0.0F, 1.0F, biome.getBaseTemperature());
             float humidity = Mathf.clamp(0.0F, 1.0F, biome.climateSettings.downfall());
+            // only the swamp modifier depends on the position, the others are precomputed per biome
+            BiomeSpecialEffects.GrassColorModifier modifier = biome.getSpecialEffects().getGrassColorModifier();
+            boolean fixedGrass = modifier == BiomeSpecialEffects.GrassColorModifier.NONE || modifier == BiomeSpecialEffects.GrassColorModifier.DARK_FOREST;
             getBiomeRegistry().register(
                     id,
                     ColorsConfig.BIOME_COLORS.getOrDefault(id, 0),
                     ColorsConfig.BIOME_FOLIAGE.getOrDefault(id, biome.getSpecialEffects().getFoliageColorOverride().orElse(Colors.getDefaultFoliageColor(temperature, humidity))),
                     ColorsConfig.BIOME_GRASS.getOrDefault(id, biome.getSpecialEffects().getGrassColorOverride().orElse(Colors.getDefaultGrassColor(temperature, humidity))),
                     ColorsConfig.BIOME_WATER.getOrDefault(id, biome.getSpecialEffects().getWaterColor()),
-                    (x, z, color) -> biome.getSpecialEffects().getGrassColorModifier().modifyColor(x, z, color)
+                    fixedGrass ? GrassModifier.fixed(color -> modifier.modifyColor(0, 0, color)) : (x, z, color) -> modifier.modifyColor(x, z, color)
             );
         }
 
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.util;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Decoding one section worth of block indices, bulk against one value at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MCAMathBenchmark {
+    private static final int SECTION = 4096;
+
+    @Param({"4", "5", "8", "12"})
+    public int bits;
+
+    private long[] array;
+    private long[] stream;
+    private final short[] out = new short[SECTION];
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(this.bits);
+        int valuesPerLong = 64 / this.bits;
+        this.array = new long[(SECTION + valuesPerLong - 1) / valuesPerLong];
+        this.stream = new long[(SECTION * this.bits + 63) >> 6];
+        for (int i = 0; i < this.array.length; i++) {
+            this.array[i] = random.nextLong();
+        }
+        for (int i = 0; i < this.stream.length; i++) {
+            this.stream[i] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public short[] arrayScalar() {
+        for (int i = 0; i < SECTION; i++) {
+            this.out[i] = (short) MCAMath.getValueFromLongArray(this.array, i, this.bits);
+        }
+        return this.out;
+    }
+
+    @Benchmark
+    public short[] arrayBulk() {
+        MCAMath.unpackLongArray(this.array, this.bits, this.out, SECTION);
+        return this.out;
+    }
+
+    @Benchmark
+    public short[] streamScalar() {
+        for (int i = 0; i < SECTION; i++) {
+            this.out[i] = (short) MCAMath.getValueFromLongStream(this.stream, i, this.bits);
+        }
+        return this.out;
+    }
+
+    @Benchmark
+    public short[] streamBulk() {
+        MCAMath.unpackLongStream(this.stream, this.bits, this.out, SECTION);
+        return this.out;
+    }
+}
@@ -49,10 +49,15 @@ import net.pl3x.map.core.registry.IconRegistry;
 import net.pl3x.map.core.registry.RendererRegistry;
 import net.pl3x.map.core.registry.WorldRegistry;
 import net.pl3x.map.core.renderer.heightmap.HeightmapRegistry;
+import net.pl3x.map.core.renderer.task.MemoryGovernor;
 import net.pl3x.map.core.renderer.task.RegionProcessor;
 import net.pl3x.map.core.renderer.task.UpdateSettingsData;
 import net.pl3x.map.core.scheduler.Scheduler;
+import net.pl3x.map.core.util.BlockColors;
+import net.pl3x.map.core.util.BufferPool;
+import net.pl3x.map.core.util.FileUtil;
 import net.pl3x.map.core.util.Mathf;
+import net.pl3x.map.core.util.RenderArena;
 import net.pl3x.map.core.util.SpiFix;
 import net.pl3x.map.core.world.Biome;
 import net.pl3x.map.core.world.Block;
@@ -68,6 +73,7 @@ public abstract class Pl3xMap {
 
     private final Attributes manifest;
     private final HttpdServer httpdServer;
+    private final MemoryGovernor memoryGovernor;
     private final RegionProcessor regionProcessor;
     private final Scheduler scheduler;
 
@@ -113,6 +119,7 @@ public abstract class Pl3xMap {
         this.httpdServer = new HttpdServer();
 
         // setup tasks
+        this.memoryGovernor = new MemoryGovernor();
         this.regionProcessor = new RegionProcessor();
         this.scheduler = new Scheduler();
 
@@ -134,6 +141,10 @@ public abstract class Pl3xMap {
         return this.httpdServer;
     }
 
+    public @NonNull MemoryGovernor getMemoryGovernor() {
+        return this.memoryGovernor;
+    }
+
     public @NonNull RegionProcessor getRegionProcessor() {
         return this.regionProcessor;
     }
@@ -182,6 +193,9 @@ public abstract class Pl3xMap {
         ColorsConfig.reload();
         PlayerTracker.reload();
 
+        // clean up temp files from writes interrupted by a crash
+        FileUtil.deleteTempFiles(FileUtil.getWebDir());
+
         // initialize icons
         getIconRegistry().init();
 
@@ -189,6 +203,7 @@ public abstract class Pl3xMap {
         Logger.debug("Registering blocks");
         Blocks.registerDefaults();
         loadBlocks();
+        BlockColors.compile(getBlockRegistry());
 
         // create the executor service
         Logger.debug("Creating services");
@@ -219,12 +234,18 @@ public abstract class Pl3xMap {
         getHttpdServer().startServer();
 
         // start tasks
+        Logger.debug("Starting memory governor");
+        getMemoryGovernor().start();
+
         Logger.debug("Starting region processor");
         getRegionProcessor().start(10000L);
 
         Logger.debug("Starting update settings data task");
         getScheduler().addTask(new UpdateSettingsData());
 
+        // publish batched writes made between renders, such as settings, markers and the tile index
+        getScheduler().addTask(1, true, () -> FileUtil.syncPendingAsync(getRenderExecutor()));
+
         Logger.info("Platform: " + getPlatform());
         Logger.info("Version: " + getVersion());
 
@@ -249,6 +270,7 @@ public abstract class Pl3xMap {
         Logger.debug("Stopping tasks");
         getScheduler().cancelAll();
         getRegionProcessor().stop();
+        getMemoryGovernor().stop();
         if (this.renderExecutor != null) {
             this.renderExecutor.shutdownNow();
         }
@@ -264,6 +286,7 @@ public abstract class Pl3xMap {
         // unload all map worlds
         Logger.debug("Unregistering worlds");
         getWorldRegistry().unregister();
+        FileUtil.syncPending();
 
         // unregister renderers
         Logger.debug("Unregistering renderers");
@@ -283,6 +306,10 @@ public abstract class Pl3xMap {
 
         // unregister blocks
         getBlockRegistry().unregister();
+
+        // drop pooled render buffers
+        BufferPool.clear();
+        RenderArena.clear();
     }
 
     public abstract @NonNull String getPlatform();
@@ -316,6 +343,26 @@ public abstract class Pl3xMap {
 
     public abstract @Nullable Block getFlower(@NonNull World world, @NonNull Biome biome, int blockX, int blockY, int blockZ);
 
+    /**
+     * Get the flowers for a batch of columns at once.
+     * <p>
+     * Platforms should override this to resolve the flower configuration of each biome only once per batch.
+     *
+     * @param world  World the columns are in
+     * @param biomes Biome of each column
+     * @param blockX Block X of each column
+     * @param blockY Block Y of each column
+     * @param blockZ Block Z of each column
+     * @param count  Number of columns
+     * @param out    Index of the flower block for each column, or -1 for no flower
+     */
+    public void getFlowers(@NonNull World world, @NonNull Biome @NonNull [] biomes, int @NonNull [] blockX, int @NonNull [] blockY, int @NonNull [] blockZ, int count, int @NonNull [] out) {
+        for (int i = 0; i < count; i++) {
+            Block flower = getFlower(world, biomes[i], blockX[i], blockY[i], blockZ[i]);
+            out[i] = flower == null ? -1 : flower.getIndex();
+        }
+    }
+
     protected abstract void loadBlocks();
 
     protected abstract void loadWorlds();
@@ -35,6 +35,7 @@ import net.kyori.adventure.text.event.ClickEvent;
 import net.pl3x.map.core.command.commands.ConfirmCommand;
 import net.pl3x.map.core.command.commands.HelpCommand;
 import net.pl3x.map.core.command.commands.HideCommand;
+import net.pl3x.map.core.command.commands.RebuildZoomCommand;
 import net.pl3x.map.core.command.commands.ReloadCommand;
 import net.pl3x.map.core.command.commands.ResetMapCommand;
 import net.pl3x.map.core.command.commands.ShowCommand;
@@ -95,6 +96,7 @@ public interface CommandHandler {
                 new ConfirmCommand(this),
                 new HelpCommand(this),
                 new HideCommand(this),
+                new RebuildZoomCommand(this),
                 new ReloadCommand(this),
                 new ResetMapCommand(this),
                 new ShowCommand(this),
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.command.commands;
+
+import cloud.commandframework.context.CommandContext;
+import cloud.commandframework.minecraft.extras.MinecraftExtrasMetaKeys;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import net.pl3x.map.core.Pl3xMap;
+import net.pl3x.map.core.command.CommandHandler;
+import net.pl3x.map.core.command.Pl3xMapCommand;
+import net.pl3x.map.core.command.Sender;
+import net.pl3x.map.core.command.argument.WorldArgument;
+import net.pl3x.map.core.configuration.Config;
+import net.pl3x.map.core.configuration.Lang;
+import net.pl3x.map.core.renderer.task.RebuildZoomTask;
+import net.pl3x.map.core.renderer.task.RegionProcessor;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+public class RebuildZoomCommand extends Pl3xMapCommand {
+    public RebuildZoomCommand(@NonNull CommandHandler handler) {
+        super(handler);
+    }
+
+    @Override
+    public void register() {
+        getHandler().registerSubcommand(builder -> builder.literal("rebuildzoom")
+                .argument(WorldArgument.of("world"), description(Lang.COMMAND_ARGUMENT_REQUIRED_WORLD_DESCRIPTION))
+                .meta(MinecraftExtrasMetaKeys.DESCRIPTION, Lang.parse(Lang.COMMAND_REBUILDZOOM_DESCRIPTION))
+                .permission("pl3xmap.command.rebuildzoom")
+                .handler(this::execute));
+    }
+
+    private void execute(@NonNull CommandContext<@NonNull Sender> context) {
+        Sender sender = context.getSender();
+        World world = context.get("world");
+
+        TagResolver.Single worldPlaceholder = Placeholder.unparsed("world", world.getName());
+
+        // rebuilt tiles would race the renderer's own writes to the same parent tiles
+        RegionProcessor processor = Pl3xMap.api().getRegionProcessor();
+        if (!processor.hold(world)) {
+            sender.sendMessage(Lang.COMMAND_REBUILDZOOM_BUSY, worldPlaceholder);
+            return;
+        }
+
+        sender.sendMessage(Lang.COMMAND_REBUILDZOOM_BEGIN, worldPlaceholder);
+
+        // this _can_ take a while... don't stall the main thread
+        CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            ExecutorService executor = Pl3xMap.ThreadFactory.createService("Pl3xMap-RebuildZoom", Config.RENDER_THREADS);
+            try {
+                int count = new RebuildZoomTask(world).run(executor);
+                world.getTileStorage().flush();
+                sender.sendMessage(Lang.COMMAND_REBUILDZOOM_SUCCESS, worldPlaceholder,
+                        Placeholder.unparsed("count", String.valueOf(count)),
+                        Placeholder.unparsed("seconds", String.valueOf((System.currentTimeMillis() - start) / 1000)));
+            } catch (Throwable t) {
+                t.printStackTrace();
+                sender.sendMessage(Lang.COMMAND_REBUILDZOOM_FAILED, worldPlaceholder);
+            } finally {
+                executor.shutdown();
+                processor.release(world);
+            }
+        });
+    }
+}
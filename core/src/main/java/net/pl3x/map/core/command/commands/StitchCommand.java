@@ -23,17 +23,23 @@
  */
 package net.pl3x.map.core.command.commands;
 
+import cloud.commandframework.arguments.flags.CommandFlag;
+import cloud.commandframework.arguments.standard.IntegerArgument;
 import cloud.commandframework.context.CommandContext;
 import cloud.commandframework.minecraft.extras.MinecraftExtrasMetaKeys;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.pl3x.map.core.Pl3xMap;
 import net.pl3x.map.core.command.CommandHandler;
 import net.pl3x.map.core.command.Pl3xMapCommand;
 import net.pl3x.map.core.command.Sender;
@@ -42,12 +48,16 @@ import net.pl3x.map.core.command.argument.WorldArgument;
 import net.pl3x.map.core.command.argument.ZoomArgument;
 import net.pl3x.map.core.configuration.Config;
 import net.pl3x.map.core.configuration.Lang;
+import net.pl3x.map.core.image.MipMap;
+import net.pl3x.map.core.image.PngWriter;
 import net.pl3x.map.core.image.io.IO;
 import net.pl3x.map.core.markers.Point;
 import net.pl3x.map.core.renderer.Renderer;
+import net.pl3x.map.core.storage.TileStorage;
+import net.pl3x.map.core.util.BufferPool;
 import net.pl3x.map.core.world.World;
 import org.checkerframework.checker.nullness.qual.NonNull;
-import static net.pl3x.map.core.world.World.PNG_MATCHER;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class StitchCommand extends Pl3xMapCommand {
     public StitchCommand(@NonNull CommandHandler handler) {
@@ -60,13 +70,32 @@ public class StitchCommand extends Pl3xMapCommand {
                 .argument(WorldArgument.of("world"), description(Lang.COMMAND_ARGUMENT_REQUIRED_WORLD_DESCRIPTION))
                 .argument(RendererArgument.of("renderer"), description(Lang.COMMAND_ARGUMENT_REQUIRED_RENDERER_DESCRIPTION))
                 .argument(ZoomArgument.optional("zoom"), description(Lang.COMMAND_ARGUMENT_OPTIONAL_ZOOM_DESCRIPTION))
+                .flag(CommandFlag.builder("scale")
+                        .withArgument(IntegerArgument.<Sender>newBuilder("scale").withMin(0).withMax(9))
+                        .withDescription(description(Lang.COMMAND_STITCH_FLAG_SCALE_DESCRIPTION)))
+                .flag(boundsFlag("min-x"))
+                .flag(boundsFlag("min-z"))
+                .flag(boundsFlag("max-x"))
+                .flag(boundsFlag("max-z"))
                 .meta(MinecraftExtrasMetaKeys.DESCRIPTION, Lang.parse(Lang.COMMAND_STITCH_DESCRIPTION))
                 .permission("pl3xmap.command.stitch")
                 .handler(this::execute));
     }
 
+    private static CommandFlag.@NonNull Builder<@NonNull Integer> boundsFlag(@NonNull String name) {
+        return CommandFlag.builder(name)
+                .withArgument(IntegerArgument.<Sender>of(name))
+                .withDescription(description(Lang.COMMAND_STITCH_FLAG_BOUNDS_DESCRIPTION));
+    }
+
     private void execute(@NonNull CommandContext<@NonNull Sender> context) {
-        new Thread(() -> executeAsync(context)).start();
+        // this _can_ take forever... don't stall the main thread
+        CompletableFuture.runAsync(() -> executeAsync(context), Pl3xMap.api().getRenderExecutor())
+                .exceptionally(throwable -> {
+                    context.getSender().sendMessage(Lang.COMMAND_STITCH_FAILED);
+                    throwable.printStackTrace();
+                    return null;
+                });
     }
 
     private void executeAsync(@NonNull CommandContext<@NonNull Sender> context) {
@@ -74,29 +103,30 @@ public class StitchCommand extends Pl3xMapCommand {
         World world = context.get("world");
         Renderer.Builder renderer = context.get("renderer");
         int zoom = context.getOrDefault("zoom", 0);
+        int scale = context.flags().getValue("scale", 0);
+        int boundMinX = context.flags().getValue("min-x", Integer.MIN_VALUE);
+        int boundMinZ = context.flags().getValue("min-z", Integer.MIN_VALUE);
+        int boundMaxX = context.flags().getValue("max-x", Integer.MAX_VALUE);
+        int boundMaxZ = context.flags().getValue("max-z", Integer.MAX_VALUE);
+
+        IO.Type io = IO.get(Config.WEB_TILE_FORMAT);
 
-        Path dir = world.getTilesDirectory().resolve(String.valueOf(zoom)).resolve(renderer.getKey());
-        if (!Files.exists(dir)) {
+        if (!Files.isDirectory(world.getTilesDirectory())) {
             sender.sendMessage(Lang.COMMAND_STITCH_MISSING_DIRECTORY);
             return;
         }
 
-        Map<Point, Path> pngFiles = new HashMap<>();
-        try (Stream<Path> stream = Files.list(dir)) {
-            stream.filter(PNG_MATCHER::matches).forEach(path -> {
-                String[] split = path.getFileName().toString().split(".png")[0].split("_");
-                if (split.length != 2) {
-                    return;
+        Map<Point, TileStorage.Tile> pngFiles = new HashMap<>();
+        try {
+            for (TileStorage.Tile tile : world.getTileStorage().list(zoom, renderer.getKey())) {
+                if (!tile.extension().equals(io.getKey())) {
+                    continue;
                 }
-                int x, z;
-                try {
-                    x = Integer.parseInt(split[0]);
-                    z = Integer.parseInt(split[1]);
-                } catch (NumberFormatException e) {
-                    return;
+                if (tile.x() < boundMinX || tile.x() > boundMaxX || tile.z() < boundMinZ || tile.z() > boundMaxZ) {
+                    continue;
                 }
-                pngFiles.put(Point.of(x, z), path);
-            });
+                pngFiles.put(Point.of(tile.x(), tile.z()), tile);
+            }
         } catch (IOException e) {
             sender.sendMessage(Lang.COMMAND_STITCH_ERROR_READING_DIRECTORY);
             e.printStackTrace();
@@ -123,6 +153,15 @@ public class StitchCommand extends Pl3xMapCommand {
         int sizeX = maxX - minX;
         int sizeZ = maxZ - minZ;
 
+        // each row of the png is held as argb ints and rgba bytes (plus a few filtered copies)
+        int tileSize = 512 >> scale;
+        long width = (long) (sizeX + 1) * tileSize;
+        long height = (long) (sizeZ + 1) * tileSize;
+        if (width * 4 + 1 > Integer.MAX_VALUE - 8 || height > Integer.MAX_VALUE) {
+            sender.sendMessage(Lang.COMMAND_STITCH_TOO_LARGE);
+            return;
+        }
+
         sender.sendMessage(Lang.COMMAND_STITCH_STARTING,
                 Placeholder.unparsed("count", String.valueOf(pngFiles.size())),
                 Placeholder.unparsed("min-x", String.valueOf(minX)),
@@ -133,35 +172,68 @@ public class StitchCommand extends Pl3xMapCommand {
                 Placeholder.unparsed("size-z", String.valueOf(sizeZ))
         );
 
-        IO.Type io = IO.get(Config.WEB_TILE_FORMAT);
+        Path dir = world.getTilesDirectory().resolve("stitched");
+        String filename = renderer.getKey() + "_" + zoom + ".png";
+        Path file = dir.resolve(filename);
+        Path tmp = dir.resolve(filename + ".tmp");
 
-        BufferedImage stitched = new BufferedImage((sizeX + 1) << 9, (sizeZ + 1) << 9, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = stitched.createGraphics();
+        int columns = sizeX + 1;
+        int rows = sizeZ + 1;
+        int[][] tiles = new int[columns][];
+        int[] line = new int[(int) width];
+        int lastPercent = 0;
 
-        for (Map.Entry<Point, Path> entry : pngFiles.entrySet()) {
-            try {
-                BufferedImage tile = io.read(entry.getValue());
-                if (tile == null) {
-                    continue;
-                }
-                Point point = entry.getKey();
-                g2d.drawImage(tile, (point.x() - minX) << 9, (point.z() - minZ) << 9, null);
-            } catch (Throwable t) {
-                t.printStackTrace();
-            }
-        }
+        try {
+            Files.createDirectories(dir);
+            try (OutputStream out = Files.newOutputStream(tmp); PngWriter png = new PngWriter(out, (int) width, (int) height)) {
+                // only one row of tiles is ever held in memory
+                for (int row = 0; row < rows; row++) {
+                    int tileZ = minZ + row;
+                    int tileMinX = minX;
+                    IntStream.range(0, columns).parallel().forEach(column ->
+                            tiles[column] = readTile(world, io, pngFiles.get(Point.of(tileMinX + column, tileZ)), scale));
 
-        g2d.dispose();
+                    for (int y = 0; y < tileSize; y++) {
+                        for (int column = 0; column < columns; column++) {
+                            int[] pixels = tiles[column];
+                            if (pixels == null) {
+                                Arrays.fill(line, column * tileSize, (column + 1) * tileSize, 0);
+                            } else {
+                                System.arraycopy(pixels, y * tileSize, line, column * tileSize, tileSize);
+                            }
+                        }
+                        png.writeRow(line);
+                    }
 
-        dir = world.getTilesDirectory().resolve("stitched");
-        if (!Files.exists(dir)) {
+                    for (int column = 0; column < columns; column++) {
+                        BufferPool.releaseInts(tiles[column]);
+                        tiles[column] = null;
+                    }
+
+                    int percent = (row + 1) * 100 / rows;
+                    if (percent / 10 > lastPercent / 10 && row + 1 < rows) {
+                        lastPercent = percent;
+                        sender.sendMessage(Lang.COMMAND_STITCH_PROGRESS,
+                                Placeholder.unparsed("percent", String.valueOf(percent)),
+                                Placeholder.unparsed("row", String.valueOf(row + 1)),
+                                Placeholder.unparsed("rows", String.valueOf(rows))
+                        );
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            for (int[] pixels : tiles) {
+                BufferPool.releaseInts(pixels);
+            }
             try {
-                Files.createDirectories(dir);
+                Files.deleteIfExists(tmp);
             } catch (IOException ignore) {
             }
+            sender.sendMessage(Lang.COMMAND_STITCH_ERROR_WRITING);
+            e.printStackTrace();
+            return;
         }
-        String filename = renderer.getKey() + "_" + zoom + "." + io.getKey();
-        io.write(dir.resolve(filename), stitched);
 
         sender.sendMessage(Lang.COMMAND_STITCH_FINISHED,
                 Placeholder.unparsed("count", String.valueOf(pngFiles.size())),
@@ -170,4 +242,28 @@ public class StitchCommand extends Pl3xMapCommand {
                 Placeholder.unparsed("filename", filename)
         );
     }
+
+    private static int @Nullable [] readTile(@NonNull World world, IO.@NonNull Type io, TileStorage.@Nullable Tile tile, int scale) {
+        if (tile == null) {
+            return null;
+        }
+        BufferedImage image;
+        try {
+            byte[] bytes = world.getTileStorage().read(tile);
+            image = bytes == null ? null : io.read(bytes);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            return null;
+        }
+        if (image == null) {
+            return null;
+        }
+        int[] pixels = BufferPool.acquireInts(512 * 512);
+        image.getRGB(0, 0, Math.min(512, image.getWidth()), Math.min(512, image.getHeight()), pixels, 0, 512);
+        // downscale in place, each pass halves the tile
+        for (int size = 512; size > 512 >> scale; size >>= 1) {
+            MipMap.reduce(pixels, size, pixels);
+        }
+        return pixels;
+    }
 }
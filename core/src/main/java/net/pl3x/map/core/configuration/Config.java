@@ -65,6 +65,13 @@ public final class Config extends AbstractConfig {
             1.0 is high quality, no compression, large file size
             Note: Not all image formats honor this setting.""")
     public static double WEB_TILE_QUALITY = 0.0F;
+    @Key("settings.web-directory.tile-storage")
+    @Comment("""
+            How rendered tiles are stored.
+            file - every tile is its own file (default)
+            pack - tiles are appended to a few large pack files per world
+            Note: pack storage can only be served by the built-in web server.""")
+    public static String WEB_TILE_STORAGE = "file";
 
     @Key("settings.internal-webserver.enabled")
     @Comment("""
@@ -93,15 +100,55 @@ public final class Config extends AbstractConfig {
 
     @Key("settings.performance.gc.when-finished")
     @Comment("""
-            Runs the JVM GC after a render job stops to free up memory immediately.""")
+            Deprecated and ignored, see memory-watermark.
+            Forcing a full GC freezes the whole server.""")
+    @Deprecated
     public static boolean GC_WHEN_FINISHED = true;
 
     @Key("settings.performance.gc.when-running")
     @Comment("""
-            Runs the JVM GC aggressively while a render is running
-            CAUTION: this _will_ slow down your renders!""")
+            Deprecated and ignored, see memory-watermark.
+            Forcing a full GC freezes the whole server.""")
+    @Deprecated
     public static boolean GC_WHEN_RUNNING = false;
 
+    @Key("settings.performance.memory-watermark")
+    @Comment("""
+            Holds back new regions while the old generation of the
+            java heap is fuller than this percentage after a GC,
+            and keeps fewer regions cached until it drops again.
+            Value of 0 disables this.""")
+    public static int MEMORY_WATERMARK = 80;
+
+    @Key("settings.performance.off-heap")
+    @Comment("""
+            Keep the tile pixels, zoom levels and blockinfo columns of
+            regions being rendered outside of the java heap.
+            This memory is reused between regions instead of being
+            left to the GC, which keeps big renders from causing
+            long GC pauses on the server.""")
+    public static boolean RENDER_OFF_HEAP = false;
+
+    @Key("settings.performance.chunk-cache-size")
+    @Comment("""
+            Megabytes of compressed chunk data to keep per world.
+            Regions that drop out of the region cache can then read
+            their chunks back from memory instead of the region file.
+            Value of 0 disables this.""")
+    public static int CHUNK_CACHE_SIZE = 64;
+
+    @Key("settings.performance.fsync")
+    @Comment("""
+            When to force written tiles and json files to disk.
+            Files are always written to a temp file first and moved
+            into place, so readers never see half written files.
+            none - leave it up to the operating system (default)
+            batched - after each region is rendered and every few
+                      seconds, files are only moved into place
+                      once they are on disk
+            always - after every file (slow)""")
+    public static String FSYNC = "none";
+
     private static final Config CONFIG = new Config();
 
     public static void reload() {
@@ -85,6 +85,17 @@ public final class Lang extends AbstractConfig {
     @Key("command.hide.success")
     public static String COMMAND_HIDE_SUCCESS = "<grey><player> <green>is now hidden from the map";
 
+    @Key("command.rebuildzoom.description")
+    public static String COMMAND_REBUILDZOOM_DESCRIPTION = "Rebuild the zoomed out tiles of a world from its zoom 0 tiles";
+    @Key("command.rebuildzoom.begin")
+    public static String COMMAND_REBUILDZOOM_BEGIN = "<green>Rebuilding zoom levels for <grey><world></grey>..";
+    @Key("command.rebuildzoom.busy")
+    public static String COMMAND_REBUILDZOOM_BUSY = "<red><grey><world></grey> is being rendered right now, try again when it is done";
+    @Key("command.rebuildzoom.success")
+    public static String COMMAND_REBUILDZOOM_SUCCESS = "<green>Rebuilt <grey><count></grey> zoomed out tiles for <grey><world></grey> in <grey><seconds></grey>s";
+    @Key("command.rebuildzoom.failed")
+    public static String COMMAND_REBUILDZOOM_FAILED = "<red>Could not rebuild zoom levels for <grey><world>";
+
     @Key("command.reload.description")
     public static String COMMAND_RELOAD_DESCRIPTION = "Reloads the plugin";
     @Key("command.reload.success")
@@ -111,6 +122,10 @@ public final class Lang extends AbstractConfig {
 
     @Key("command.stitch.description")
     public static String COMMAND_STITCH_DESCRIPTION = "Stitches tiles into one image";
+    @Key("command.stitch.flag.scale.description")
+    public static String COMMAND_STITCH_FLAG_SCALE_DESCRIPTION = "Halve the image size this many times";
+    @Key("command.stitch.flag.bounds.description")
+    public static String COMMAND_STITCH_FLAG_BOUNDS_DESCRIPTION = "Only stitch tiles inside these tile coordinates (region coordinates at zoom 0)";
     @Key("command.stitch.missing-directory")
     public static String COMMAND_STITCH_MISSING_DIRECTORY = "<red>Unable to find tiles directory.";
     @Key("command.stitch.error-reading-directory")
@@ -119,6 +134,14 @@ public final class Lang extends AbstractConfig {
     public static String COMMAND_STITCH_EMPTY_DIRECTORY = "<red>There are no tiles to stitch.";
     @Key("command.stitch.starting")
     public static String COMMAND_STITCH_STARTING = "<green>Started stitching <count> tiles..\n<green><italic>(min: <min-x>,<min-z> max: <max-x>,<max-z> size: <size-x>,<size-z>)";
+    @Key("command.stitch.too-large")
+    public static String COMMAND_STITCH_TOO_LARGE = "<red>The stitched image would be too large. Try a smaller area or a bigger scale.";
+    @Key("command.stitch.progress")
+    public static String COMMAND_STITCH_PROGRESS = "<green>Stitching.. <percent>% <grey>(<row>/<rows> tile rows)";
+    @Key("command.stitch.error-writing")
+    public static String COMMAND_STITCH_ERROR_WRITING = "<red>There was a problem writing the stitched image.";
+    @Key("command.stitch.failed")
+    public static String COMMAND_STITCH_FAILED = "<red>There was a problem stitching the tiles.";
     @Key("command.stitch.finished")
     public static String COMMAND_STITCH_FINISHED = "<green>Finished stitching <count> tiles!\n<green>You can find it at <grey>/tiles/<world>/stitched/<filename>";
 
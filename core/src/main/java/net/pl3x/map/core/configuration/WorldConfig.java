@@ -94,6 +94,14 @@ public final class WorldConfig extends AbstractConfig {
             EVEN_ODD_OLD_SCHOOL mix of EVEN_ODD and OLD_SCHOOL.""")
     public String RENDER_HEIGHTMAP_TYPE = "MODERN";
 
+    @Key("render.blockinfo-max-zoom")
+    @Comment("""
+            The highest zoom out level to produce blockinfo for.
+            The blockinfo box can only show data on zoom levels
+            that have it, so there is little point in going far.
+            Value of -1 will produce it for all zoom levels.""")
+    public int RENDER_BLOCKINFO_MAX_ZOOM = -1;
+
     @Key("ui.display-name")
     @Comment("""
             The display name of the world in the world list.
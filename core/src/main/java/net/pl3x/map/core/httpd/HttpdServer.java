@@ -64,17 +64,13 @@ public class HttpdServer {
                         }
                     })
                     .build();
-            ResourceHandler resourceHandler = new ResourceHandler(resourceManager, exchange -> {
-                String url = exchange.getRelativePath();
-                if (url.startsWith("/tiles") && (url.endsWith(".png") || url.endsWith(".gz"))) {
-                    exchange.setStatusCode(200);
-                    return;
-                }
+            ResourceHandler resources = new ResourceHandler(resourceManager, exchange -> {
                 exchange.setStatusCode(404);
                 if (UndertowLogger.PREDICATE_LOGGER.isDebugEnabled()) {
                     UndertowLogger.PREDICATE_LOGGER.debugf("Response code set to [%s] for %s.", 404, exchange);
                 }
             });
+            PackTileHandler resourceHandler = new PackTileHandler(resources);
 
             LogFilter.HIDE_UNDERTOW_LOGS = true;
             this.server = Undertow.builder()
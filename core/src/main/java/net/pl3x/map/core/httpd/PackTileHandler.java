@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.httpd;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.ETag;
+import io.undertow.util.ETagUtils;
+import io.undertow.util.Headers;
+import io.undertow.util.StatusCodes;
+import java.nio.ByteBuffer;
+import net.pl3x.map.core.Pl3xMap;
+import net.pl3x.map.core.storage.PackTileStorage;
+import net.pl3x.map.core.storage.TileStorage;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Serves tiles for worlds using pack storage, falling through to the next handler otherwise.
+ */
+public class PackTileHandler implements HttpHandler {
+    private final HttpHandler next;
+
+    public PackTileHandler(@NonNull HttpHandler next) {
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(@NonNull HttpServerExchange exchange) throws Exception {
+        // path looks like /tiles/<world>/<zoom>/<renderer>/<x>_<z>.<ext>
+        String url = exchange.getRelativePath();
+        int slash = url.indexOf('/', 7);
+        if (!url.startsWith("/tiles/") || slash < 0) {
+            this.next.handleRequest(exchange);
+            return;
+        }
+        PackTileStorage storage = getStorage(url.substring(7, slash));
+        TileStorage.Tile tile = TileStorage.Tile.parse(url.substring(slash + 1));
+        if (storage == null || tile == null) {
+            this.next.handleRequest(exchange);
+            return;
+        }
+
+        long modified = storage.lastModified(tile);
+        if (modified < 0) {
+            this.next.handleRequest(exchange);
+            return;
+        }
+
+        ETag etag = new ETag(false, Long.toHexString(modified) + "-" + Integer.toHexString(storage.length(tile)));
+        if (!ETagUtils.handleIfNoneMatch(exchange, etag, false)) {
+            exchange.getResponseHeaders().put(Headers.ETAG, etag.toString());
+            exchange.setStatusCode(StatusCodes.NOT_MODIFIED);
+            exchange.endExchange();
+            return;
+        }
+
+        // reading from the pack is blocking io
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(this);
+            return;
+        }
+
+        byte[] data = storage.read(tile);
+        if (data == null) {
+            this.next.handleRequest(exchange);
+            return;
+        }
+
+        if (!exchange.getResponseHeaders().contains(Headers.CONTENT_TYPE)) {
+            exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, contentType(tile.extension()));
+        }
+        exchange.getResponseHeaders().put(Headers.ETAG, etag.toString());
+        exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, data.length);
+        exchange.getResponseSender().send(ByteBuffer.wrap(data));
+    }
+
+    private @Nullable PackTileStorage getStorage(@NonNull String dir) {
+        for (World world : Pl3xMap.api().getWorldRegistry()) {
+            if (world.getTileStorage() instanceof PackTileStorage storage
+                    && world.getTilesDirectory().getFileName().toString().equals(dir)) {
+                return storage;
+            }
+        }
+        return null;
+    }
+
+    private static @NonNull String contentType(@NonNull String extension) {
+        return switch (extension) {
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "gif" -> "image/gif";
+            case "bmp" -> "image/bmp";
+            default -> "image/" + extension;
+        };
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.image;
+
+import java.nio.IntBuffer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * 2x2 box filter used to build each zoomed out level from the level below it.
+ * <p>
+ * Empty (0) pixels are treated as not rendered and are left out of the average,
+ * so partially rendered areas do not fade out towards their edges.
+ */
+public final class MipMap {
+    private MipMap() {
+    }
+
+    /**
+     * Reduce a square image to half its size.
+     *
+     * @param src     Source pixels
+     * @param srcSize Width (and height) of the source
+     * @param dst     Destination pixels, at least (srcSize / 2)^2 long
+     */
+    public static void reduce(int @NonNull [] src, int srcSize, int @NonNull [] dst) {
+        reduce(src, srcSize, dst, 0, srcSize >> 1);
+    }
+
+    /**
+     * Reduce a square image to half its size into part of a larger image.
+     *
+     * @param src       Source pixels
+     * @param srcSize   Width (and height) of the source
+     * @param dst       Destination pixels
+     * @param dstOffset Index in the destination of the top left reduced pixel
+     * @param dstStride Width of a row in the destination
+     */
+    public static void reduce(int @NonNull [] src, int srcSize, int @NonNull [] dst, int dstOffset, int dstStride) {
+        int size = srcSize >> 1;
+        for (int z = 0; z < size; z++) {
+            int top = (z << 1) * srcSize;
+            int bottom = top + srcSize;
+            int out = dstOffset + z * dstStride;
+            for (int x = 0; x < size; x++) {
+                int i = x << 1;
+                dst[out + x] = average(src[top + i], src[top + i + 1], src[bottom + i], src[bottom + i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Reduce a square image to half its size.
+     *
+     * @param src     Source pixels
+     * @param srcSize Width (and height) of the source
+     * @param dst     Destination pixels, at least (srcSize / 2)^2 long
+     */
+    public static void reduce(@NonNull IntBuffer src, int srcSize, @NonNull IntBuffer dst) {
+        int size = srcSize >> 1;
+        for (int z = 0; z < size; z++) {
+            int top = (z << 1) * srcSize;
+            int bottom = top + srcSize;
+            int out = z * size;
+            for (int x = 0; x < size; x++) {
+                int i = x << 1;
+                dst.put(out + x, average(src.get(top + i), src.get(top + i + 1), src.get(bottom + i), src.get(bottom + i + 1)));
+            }
+        }
+    }
+
+    public static int average(int c0, int c1, int c2, int c3) {
+        if (c0 != 0 && c1 != 0 && c2 != 0 && c3 != 0) {
+            // all four are present, sum two channels per int (alpha+green and red+blue)
+            int ag = ((c0 >>> 8) & 0xFF00FF) + ((c1 >>> 8) & 0xFF00FF) + ((c2 >>> 8) & 0xFF00FF) + ((c3 >>> 8) & 0xFF00FF);
+            int rb = (c0 & 0xFF00FF) + (c1 & 0xFF00FF) + (c2 & 0xFF00FF) + (c3 & 0xFF00FF);
+            return (((ag + 0x20002) << 6) & 0xFF00FF00) | (((rb + 0x20002) >>> 2) & 0xFF00FF);
+        }
+        if ((c0 | c1 | c2 | c3) == 0) {
+            return 0;
+        }
+        // some are missing, average only the ones that were rendered
+        long sum = spread(c0) + spread(c1) + spread(c2) + spread(c3);
+        int n = (c0 != 0 ? 1 : 0) + (c1 != 0 ? 1 : 0) + (c2 != 0 ? 1 : 0) + (c3 != 0 ? 1 : 0);
+        int half = n >> 1;
+        int a = ((int) (sum >>> 48) + half) / n;
+        int r = ((int) (sum >>> 32 & 0xFFFF) + half) / n;
+        int g = ((int) (sum >>> 16 & 0xFFFF) + half) / n;
+        int b = ((int) (sum & 0xFFFF) + half) / n;
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+
+    // one channel per 16 bits so four pixels can be summed without overflow
+    private static long spread(int c) {
+        return ((c & 0xFF000000L) << 24) | ((c & 0xFF0000L) << 16) | ((c & 0xFF00L) << 8) | (c & 0xFFL);
+    }
+}
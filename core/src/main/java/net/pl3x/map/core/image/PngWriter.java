@@ -0,0 +1,233 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.image;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Writes an RGBA png one scanline at a time, so images far too big
+ * to ever fit in memory can still be written.
+ */
+public class PngWriter implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int CHUNK_SIZE = 0x10000;
+
+    private final OutputStream out;
+    private final Deflater deflater;
+    private final DeflaterOutputStream idat;
+    private final int width;
+    private final int height;
+
+    private byte[] previous;
+    private byte[] current;
+    private final byte[][] filtered = new byte[5][];
+
+    private int rows;
+
+    public PngWriter(@NonNull OutputStream out, int width, int height) throws IOException {
+        this.out = new BufferedOutputStream(out, CHUNK_SIZE);
+        this.width = width;
+        this.height = height;
+
+        int stride = width * 4;
+        this.previous = new byte[stride];
+        this.current = new byte[stride];
+        for (int i = 0; i < this.filtered.length; i++) {
+            this.filtered[i] = new byte[stride + 1];
+            this.filtered[i][0] = (byte) i;
+        }
+
+        this.out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8; // bit depth
+        header[9] = 6; // truecolor with alpha
+        writeChunk("IHDR", header, header.length);
+
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.idat = new DeflaterOutputStream(new IdatStream(), this.deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * Write the next scanline.
+     *
+     * @param argb Pixels of the row as ARGB, at least width long
+     * @throws IOException if the row could not be written
+     */
+    public void writeRow(int @NonNull [] argb) throws IOException {
+        if (this.rows >= this.height) {
+            throw new IOException("All rows have already been written");
+        }
+        byte[] row = this.current;
+        for (int x = 0, i = 0; x < this.width; x++, i += 4) {
+            int pixel = argb[x];
+            row[i] = (byte) (pixel >> 16);
+            row[i + 1] = (byte) (pixel >> 8);
+            row[i + 2] = (byte) pixel;
+            row[i + 3] = (byte) (pixel >> 24);
+        }
+        this.idat.write(filter(row, this.previous));
+        this.current = this.previous;
+        this.previous = row;
+        this.rows++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.rows != this.height) {
+                throw new IOException("Only " + this.rows + " of " + this.height + " rows were written");
+            }
+            this.idat.finish();
+            this.idat.flush();
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            this.deflater.end();
+            this.out.close();
+        }
+    }
+
+    // pick the filter with the smallest sum of absolute values, as suggested by the png spec
+    private byte @NonNull [] filter(byte @NonNull [] row, byte @NonNull [] above) {
+        byte[] none = this.filtered[0], sub = this.filtered[1], up = this.filtered[2], avg = this.filtered[3], paeth = this.filtered[4];
+        long sumNone = 0, sumSub = 0, sumUp = 0, sumAvg = 0, sumPaeth = 0;
+        for (int i = 0; i < row.length; i++) {
+            int x = row[i] & 0xFF;
+            int a = i < 4 ? 0 : row[i - 4] & 0xFF;
+            int b = above[i] & 0xFF;
+            int c = i < 4 ? 0 : above[i - 4] & 0xFF;
+            byte n = (byte) x;
+            byte s = (byte) (x - a);
+            byte u = (byte) (x - b);
+            byte v = (byte) (x - ((a + b) >> 1));
+            byte p = (byte) (x - paeth(a, b, c));
+            none[i + 1] = n;
+            sub[i + 1] = s;
+            up[i + 1] = u;
+            avg[i + 1] = v;
+            paeth[i + 1] = p;
+            sumNone += Math.abs(n);
+            sumSub += Math.abs(s);
+            sumUp += Math.abs(u);
+            sumAvg += Math.abs(v);
+            sumPaeth += Math.abs(p);
+        }
+        byte[] best = none;
+        long min = sumNone;
+        if (sumSub < min) {
+            best = sub;
+            min = sumSub;
+        }
+        if (sumUp < min) {
+            best = up;
+            min = sumUp;
+        }
+        if (sumAvg < min) {
+            best = avg;
+            min = sumAvg;
+        }
+        if (sumPaeth < min) {
+            best = paeth;
+        }
+        return best;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private void writeChunk(@NonNull String type, byte @NonNull [] data, int length) throws IOException {
+        byte[] header = new byte[8];
+        putInt(header, 0, length);
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(name, 0, header, 4, 4);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        byte[] footer = new byte[4];
+        putInt(footer, 0, (int) crc.getValue());
+        this.out.write(header);
+        this.out.write(data, 0, length);
+        this.out.write(footer);
+    }
+
+    private static void putInt(byte @NonNull [] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    // splits the compressed stream into IDAT chunks
+    private class IdatStream extends OutputStream {
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int size;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (this.size == this.buffer.length) {
+                flush();
+            }
+            this.buffer[this.size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte @NonNull [] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (this.size == this.buffer.length) {
+                    flush();
+                }
+                int count = Math.min(length, this.buffer.length - this.size);
+                System.arraycopy(bytes, offset, this.buffer, this.size, count);
+                this.size += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (this.size > 0) {
+                writeChunk("IDAT", this.buffer, this.size);
+                this.size = 0;
+            }
+        }
+    }
+}
@@ -24,8 +24,14 @@
 package net.pl3x.map.core.image;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.IntBuffer;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
@@ -36,8 +42,8 @@ import net.pl3x.map.core.Keyed;
 import net.pl3x.map.core.configuration.Config;
 import net.pl3x.map.core.image.io.IO;
 import net.pl3x.map.core.markers.Point;
-import net.pl3x.map.core.util.Colors;
-import net.pl3x.map.core.util.FileUtil;
+import net.pl3x.map.core.storage.TileStorage;
+import net.pl3x.map.core.util.RenderArena;
 import net.pl3x.map.core.world.World;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -51,18 +57,37 @@ public class TileImage extends Keyed {
     private final World world;
     private final Point region;
 
-    private final int[] pixels = new int[512 << 9];
+    private final RenderArena arena;
+    private IntBuffer pixels;
 
     private final IO.Type io;
+    private final boolean rawColors;
 
     private boolean written = false;
 
     public TileImage(@NonNull String key, @NonNull World world, @NonNull Point region) {
+        this(key, world, region, RenderArena.HEAP);
+    }
+
+    /**
+     * Create a tile image with its pixels and zoom levels in the given arena.
+     *
+     * @param key    Renderer key
+     * @param world  World
+     * @param region Region position
+     * @param arena  Arena to keep pixels in
+     */
+    public TileImage(@NonNull String key, @NonNull World world, @NonNull Point region, @NonNull RenderArena arena) {
         super(key);
         this.world = world;
         this.region = region;
 
         this.io = IO.get(Config.WEB_TILE_FORMAT);
+        // formats that keep argb untouched can have whole rows copied
+        this.rawColors = this.io.color(0x80FFFFFF) == 0x80FFFFFF;
+
+        this.arena = arena;
+        this.pixels = arena.allocateInts(512 << 9);
     }
 
     public int getIndex(int x, int z) {
@@ -70,102 +95,179 @@ public class TileImage extends Keyed {
     }
 
     public int getPixel(int x, int z) {
-        return this.pixels[getIndex(x, z)];
+        return this.pixels.get(getIndex(x, z));
     }
 
     public void setPixel(int x, int z, int color) {
-        this.pixels[getIndex(x, z)] = color;
+        this.pixels.put(getIndex(x, z), color);
+        this.written = true;
+    }
+
+    public void getPixels(int x, int z, int @NonNull [] dst, int offset, int length) {
+        this.pixels.get(getIndex(x, z), dst, offset, length);
+    }
+
+    public void setPixels(int x, int z, int @NonNull [] src, int offset, int length) {
+        this.pixels.put(getIndex(x, z), src, offset, length);
         this.written = true;
     }
 
+    public void release() {
+        this.arena.release(this.pixels);
+        this.pixels = null;
+    }
+
     public void saveToDisk() {
         if (!this.written) {
             return; // nothing written, nothing to save
         }
+        IntBuffer level = this.pixels;
+        IntBuffer previous = null;
         for (int zoom = 0; zoom <= this.world.getConfig().ZOOM_MAX_OUT; zoom++) {
-            Path dirPath = this.world.getTilesDirectory().resolve(String.format(DIR_PATH, zoom, getKey()));
-
-            // create directories if they don't exist
-            FileUtil.createDirs(dirPath);
+            int size = 512 >> zoom;
+            if (zoom > 0) {
+                // build this zoom level from the one below it
+                IntBuffer next = this.arena.allocateInts(size * size);
+                MipMap.reduce(level, size << 1, next);
+                this.arena.release(previous);
+                previous = next;
+                level = next;
+            }
 
-            Path filePath = dirPath.resolve(String.format(FILE_PATH,
+            TileStorage.Tile tile = new TileStorage.Tile(zoom, getKey(),
                     this.region.x() >> zoom,
                     this.region.z() >> zoom,
-                    this.io.getKey()));
+                    this.io.getKey());
+            Path filePath = this.world.getTilesDirectory().resolve(tile.getPath());
 
             ReadWriteLock lock = FILE_LOCKS.computeIfAbsent(filePath, k -> new ReentrantReadWriteLock(true));
             lock.writeLock().lock();
 
             // wrap all this to ensure we close the file lock even on fail
             try {
-                // read existing image from disk
-                BufferedImage buffer = getBuffer(filePath);
+                // read existing image from storage
+                BufferedImage buffer = getBuffer(tile);
 
                 // write new pixels
-                writePixels(buffer, 512 >> zoom, zoom);
+                writePixels(buffer, level, size);
 
-                // finally, save buffer to disk
-                this.io.write(filePath, buffer);
+                // finally, save buffer to storage
+                this.world.getTileStorage().write(tile, this.io.write(buffer));
             } catch (Throwable t) {
                 t.printStackTrace();
             }
 
             lock.writeLock().unlock();
         }
+        this.arena.release(previous);
     }
 
-    private @NonNull BufferedImage getBuffer(@NonNull Path path) throws IOException {
+    private @NonNull BufferedImage getBuffer(TileStorage.@NonNull Tile tile) throws IOException {
         BufferedImage buffer = null;
 
         // try to read existing image
-        if (Files.exists(path) && Files.size(path) > 0) {
-            buffer = this.io.read(path);
+        byte[] bytes = this.world.getTileStorage().read(tile);
+        if (bytes != null) {
+            buffer = this.io.read(bytes);
         }
 
         // if not, create a new image
         if (buffer == null) {
             buffer = this.io.createBuffer();
+        } else if (!isWritable(buffer)) {
+            // convert odd image types we cannot write to directly
+            BufferedImage converted = this.io.createBuffer();
+            int w = Math.min(buffer.getWidth(), converted.getWidth());
+            int h = Math.min(buffer.getHeight(), converted.getHeight());
+            converted.setRGB(0, 0, w, h, buffer.getRGB(0, 0, w, h, null, 0, w), 0, w);
+            buffer = converted;
         }
 
         return buffer;
     }
 
-    private void writePixels(@NonNull BufferedImage buffer, int size, int zoom) {
-        int step = 1 << zoom;
+    private static boolean isWritable(@NonNull BufferedImage buffer) {
+        return switch (buffer.getType()) {
+            case BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> true;
+            default -> false;
+        };
+    }
+
+    private void writePixels(@NonNull BufferedImage buffer, @NonNull IntBuffer level, int size) {
         int baseX = (this.region.x() * size) & 0x1FF;
         int baseZ = (this.region.z() * size) & 0x1FF;
-        for (int x = 0; x < 512; x += step) {
-            for (int z = 0; z < 512; z += step) {
-                int argb = getPixel(x, z);
+        for (int z = 0; z < size; z++) {
+            writeRow(this.io, this.rawColors, buffer, baseX, baseZ + z, level, z * size, size);
+        }
+    }
+
+    /**
+     * Write a whole tile worth of pixels into an image from {@link IO.Type#createBuffer()}.
+     * Empty (0) pixels are skipped.
+     *
+     * @param io     Image type of the buffer
+     * @param buffer Image to write to
+     * @param pixels 512x512 ARGB pixels
+     */
+    public static void writePixels(IO.@NonNull Type io, @NonNull BufferedImage buffer, int @NonNull [] pixels) {
+        boolean rawColors = io.color(0x80FFFFFF) == 0x80FFFFFF;
+        IntBuffer src = IntBuffer.wrap(pixels);
+        for (int z = 0; z < 512; z++) {
+            writeRow(io, rawColors, buffer, 0, z, src, z << 9, 512);
+        }
+    }
+
+    private static void writeRow(IO.@NonNull Type io, boolean rawColors, @NonNull BufferedImage buffer, int x, int y, @NonNull IntBuffer src, int offset, int length) {
+        WritableRaster raster = buffer.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        if (dataBuffer instanceof DataBufferInt ints) {
+            int[] data = ints.getData();
+            int dst = ints.getOffset() + y * ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() + x;
+            boolean alpha = buffer.getType() == BufferedImage.TYPE_INT_ARGB;
+            if (alpha && rawColors && !hasEmpty(src, offset, length)) {
+                src.get(offset, data, dst, length);
+                return;
+            }
+            int mask = alpha ? 0xFFFFFFFF : 0xFFFFFF;
+            for (int i = 0; i < length; i++) {
+                int argb = src.get(offset + i);
+                // skipping 0 prevents overwrite existing
+                // parts of the buffer of existing images
+                if (argb != 0) {
+                    data[dst + i] = io.color(argb) & mask;
+                }
+            }
+        } else {
+            // interleaved byte rasters (3BYTE_BGR for jpg, 4BYTE_ABGR from decoded pngs)
+            PixelInterleavedSampleModel model = (PixelInterleavedSampleModel) raster.getSampleModel();
+            byte[] data = ((DataBufferByte) dataBuffer).getData();
+            int[] bands = model.getBandOffsets();
+            int pixelStride = model.getPixelStride();
+            int r = bands[0], g = bands[1], b = bands[2], a = bands.length > 3 ? bands[3] : -1;
+            int dst = dataBuffer.getOffset() + y * model.getScanlineStride() + x * pixelStride;
+            for (int i = 0; i < length; i++, dst += pixelStride) {
+                int argb = src.get(offset + i);
                 if (argb == 0) {
-                    // skipping 0 prevents overwrite existing
-                    // parts of the buffer of existing images
                     continue;
                 }
-                if (step > 1) {
-                    // merge pixel colors instead of skipping them
-                    argb = downSample(x, z, argb, step);
+                argb = io.color(argb);
+                data[dst + r] = (byte) (argb >> 16);
+                data[dst + g] = (byte) (argb >> 8);
+                data[dst + b] = (byte) argb;
+                if (a >= 0) {
+                    data[dst + a] = (byte) (argb >>> 24);
                 }
-                buffer.setRGB(baseX + (x >> zoom), baseZ + (z >> zoom), this.io.color(argb));
             }
         }
     }
 
-    private int downSample(int x, int z, int rgb, int step) {
-        int a = 0, r = 0, g = 0, b = 0, c = 0;
-        for (int i = 0; i < step; i++) {
-            for (int j = 0; j < step; j++) {
-                if (i != 0 && j != 0) {
-                    rgb = getPixel(x + i, z + j);
-                }
-                a += Colors.alpha(rgb);
-                r += Colors.red(rgb);
-                g += Colors.green(rgb);
-                b += Colors.blue(rgb);
-                c++;
+    private static boolean hasEmpty(@NonNull IntBuffer src, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (src.get(i) == 0) {
+                return true;
             }
         }
-        return Colors.argb(a / c, r / c, g / c, b / c);
+        return false;
     }
 
     @Override
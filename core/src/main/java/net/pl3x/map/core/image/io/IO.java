@@ -24,7 +24,11 @@
 package net.pl3x.map.core.image.io;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Locale;
@@ -35,10 +39,13 @@ import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import net.pl3x.map.core.Keyed;
 import net.pl3x.map.core.configuration.Config;
 import net.pl3x.map.core.log.Logger;
 import net.pl3x.map.core.registry.Registry;
+import net.pl3x.map.core.util.FileUtil;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -90,27 +97,56 @@ public abstract class IO {
         }
 
         public @Nullable BufferedImage read(@NonNull Path path) {
-            BufferedImage buffer = null;
-            ImageReader reader = null;
-            try (ImageInputStream in = ImageIO.createImageInputStream(Files.newInputStream(path))) {
-                reader = ImageIO.getImageReadersBySuffix(getKey()).next();
-                reader.setInput(in, false, true);
-                buffer = reader.read(0);
-                in.flush();
+            try (InputStream in = Files.newInputStream(path)) {
+                return decode(in);
             } catch (IOException e) {
                 Logger.warn("Could not read tile image: " + path);
                 e.printStackTrace();
+                return null;
+            }
+        }
+
+        public @Nullable BufferedImage read(byte @NonNull [] bytes) {
+            try (InputStream in = new ByteArrayInputStream(bytes)) {
+                return decode(in);
+            } catch (IOException e) {
+                Logger.warn("Could not decode tile image");
+                e.printStackTrace();
+                return null;
+            }
+        }
+
+        public void write(@NonNull Path path, @NonNull BufferedImage buffer) {
+            try {
+                FileUtil.atomicWrite(write(buffer), path);
+            } catch (IOException e) {
+                Logger.warn("Could not write tile image: " + path);
+                e.printStackTrace();
+            }
+        }
+
+        public byte @NonNull [] write(@NonNull BufferedImage buffer) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(0x10000);
+            encode(out, buffer);
+            return out.toByteArray();
+        }
+
+        protected @Nullable BufferedImage decode(@NonNull InputStream input) throws IOException {
+            ImageReader reader = null;
+            try (ImageInputStream in = new MemoryCacheImageInputStream(input)) {
+                reader = ImageIO.getImageReadersBySuffix(getKey()).next();
+                reader.setInput(in, false, true);
+                return reader.read(0);
             } finally {
                 if (reader != null) {
                     reader.dispose();
                 }
             }
-            return buffer;
         }
 
-        public void write(@NonNull Path path, @NonNull BufferedImage buffer) {
+        protected void encode(@NonNull OutputStream output, @NonNull BufferedImage buffer) throws IOException {
             ImageWriter writer = null;
-            try (ImageOutputStream out = ImageIO.createImageOutputStream(path.toFile())) {
+            try (ImageOutputStream out = new MemoryCacheImageOutputStream(output)) {
                 writer = ImageIO.getImageWritersBySuffix(getKey()).next();
                 ImageWriteParam param = writer.getDefaultWriteParam();
                 if (param.canWriteCompressed()) {
@@ -123,9 +159,6 @@ public abstract class IO {
                 writer.setOutput(out);
                 writer.write(null, new IIOImage(buffer, null, null), param);
                 out.flush();
-            } catch (IOException e) {
-                Logger.warn("Could not write tile image: " + path);
-                e.printStackTrace();
             } finally {
                 if (writer != null) {
                     writer.dispose();
@@ -33,7 +33,7 @@ public class Jpg extends IO.Type {
 
     @Override
     public @NonNull BufferedImage createBuffer() {
-        return new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
+        return new BufferedImage(512, 512, BufferedImage.TYPE_3BYTE_BGR);
     }
 
     @Override
@@ -10,6 +10,10 @@ public interface Area {
 
     boolean containsRegion(int regionX, int regionZ);
 
+    default boolean containsWholeRegion(int regionX, int regionZ) {
+        return false;
+    }
+
     Map<String, Object> serialize();
 
     static Area deserialize(World world, Map<String, Object> map) {
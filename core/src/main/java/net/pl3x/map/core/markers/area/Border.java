@@ -43,6 +43,11 @@ public class Border implements Area {
         return regionX >= (getMinX() >> 9) && regionX <= (getMaxX() >> 9) && regionZ >= (getMinZ() >> 9) && regionZ <= (getMaxZ() >> 9);
     }
 
+    @Override
+    public boolean containsWholeRegion(int regionX, int regionZ) {
+        return (regionX << 9) >= getMinX() && (regionX << 9) + 511 <= getMaxX() && (regionZ << 9) >= getMinZ() && (regionZ << 9) + 511 <= getMaxZ();
+    }
+
     @Override
     public @NonNull Map<String, Object> serialize() {
         Map<String, Object> map = new LinkedHashMap<>();
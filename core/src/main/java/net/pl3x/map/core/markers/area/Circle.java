@@ -48,6 +48,16 @@ public class Circle implements Area {
         return containsBlock(offset(regionX << 9, getCenterX(), 0x1FF), offset(regionZ << 9, getCenterZ(), 0x1FF));
     }
 
+    @Override
+    public boolean containsWholeRegion(int regionX, int regionZ) {
+        // a circle is convex, so it holds the whole region if it holds the farthest corner
+        return containsBlock(farthest(regionX << 9, getCenterX()), farthest(regionZ << 9, getCenterZ()));
+    }
+
+    private int farthest(int a, int b) {
+        return b - a < a + 0x1FF - b ? a + 0x1FF : a;
+    }
+
     private int offset(int a, int b, int c) {
         return a < b ? a + Math.min(c, b - a) : a;
     }
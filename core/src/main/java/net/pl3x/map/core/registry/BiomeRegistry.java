@@ -26,6 +26,7 @@ package net.pl3x.map.core.registry;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import javax.management.openmbean.KeyAlreadyExistsException;
@@ -42,6 +43,8 @@ public class BiomeRegistry extends Registry<@NonNull Biome> {
             .setLenient()
             .create();
 
+    private volatile Biome[] byIndex = new Biome[0];
+
     public @NonNull Biome register(@NonNull String id, int color, int foliage, int grass, int water, Biome.@NonNull GrassModifier grassModifier) {
         if (has(id)) {
             throw new KeyAlreadyExistsException("Biome already registered: " + id);
@@ -49,11 +52,40 @@ public class BiomeRegistry extends Registry<@NonNull Biome> {
         return register(id, new Biome(size(), id, color, foliage, grass, water, grassModifier));
     }
 
+    @Override
+    public synchronized @NonNull Biome register(@NonNull String id, @NonNull Biome biome) {
+        Biome[] byIndex = this.byIndex;
+        if (biome.index() >= byIndex.length) {
+            byIndex = Arrays.copyOf(byIndex, biome.index() + 1);
+        }
+        byIndex[biome.index()] = biome;
+        this.byIndex = byIndex;
+        return super.register(id, biome);
+    }
+
+    @Override
+    public synchronized void unregister() {
+        super.unregister();
+        this.byIndex = new Biome[0];
+    }
+
     @Override
     public @NonNull Biome get(@NonNull String id) {
         return getOrDefault(id, Biome.DEFAULT);
     }
 
+    /**
+     * Get a biome by its index.
+     *
+     * @param index Biome index
+     * @return biome, or {@link Biome#DEFAULT} if there is no biome with that index
+     */
+    public @NonNull Biome get(int index) {
+        Biome[] byIndex = this.byIndex;
+        Biome biome = index >= 0 && index < byIndex.length ? byIndex[index] : null;
+        return biome == null ? Biome.DEFAULT : biome;
+    }
+
     public void saveToDisk(@NonNull World world) {
         Map<Integer, String> map = new HashMap<>();
         values().forEach(biome -> map.put(biome.index(), biome.getKey()));
@@ -24,6 +24,8 @@
 package net.pl3x.map.core.registry;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.EnumSet;
+import java.util.Set;
 import net.pl3x.map.core.renderer.BasicRenderer;
 import net.pl3x.map.core.renderer.BiomeRenderer;
 import net.pl3x.map.core.renderer.BlockInfoRenderer;
@@ -31,6 +33,7 @@ import net.pl3x.map.core.renderer.FlowerMapRenderer;
 import net.pl3x.map.core.renderer.InhabitedRenderer;
 import net.pl3x.map.core.renderer.Renderer;
 import net.pl3x.map.core.renderer.task.RegionScanTask;
+import net.pl3x.map.core.world.Chunk;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 public class RendererRegistry extends Registry<Renderer.@NonNull Builder> {
@@ -41,11 +44,15 @@ public class RendererRegistry extends Registry<Renderer.@NonNull Builder> {
     public static final String INHABITED = "inhabited";
 
     public void register() {
-        register(BASIC, new Renderer.Builder(BASIC, "Basic", BasicRenderer.class));
-        register(BIOMES, new Renderer.Builder(BIOMES, "Biomes", BiomeRenderer.class));
-        register(BLOCKINFO, new Renderer.Builder(BLOCKINFO, "BlockInfo", BlockInfoRenderer.class));
-        register(FLOWERMAP, new Renderer.Builder(FLOWERMAP, "FlowerMap", FlowerMapRenderer.class));
-        register(INHABITED, new Renderer.Builder(INHABITED, "Inhabited", InhabitedRenderer.class));
+        // everything built in draws the surface block, nothing reads block light yet
+        Set<Chunk.Requirement> surface = EnumSet.of(Chunk.Requirement.BLOCK_STATES, Chunk.Requirement.BIOMES, Chunk.Requirement.HEIGHTMAPS);
+        Set<Chunk.Requirement> inhabited = EnumSet.of(Chunk.Requirement.INHABITED_TIME, Chunk.Requirement.BLOCK_STATES, Chunk.Requirement.BIOMES, Chunk.Requirement.HEIGHTMAPS);
+
+        register(BASIC, new Renderer.Builder(BASIC, "Basic", BasicRenderer.class, surface));
+        register(BIOMES, new Renderer.Builder(BIOMES, "Biomes", BiomeRenderer.class, surface));
+        register(BLOCKINFO, new Renderer.Builder(BLOCKINFO, "BlockInfo", BlockInfoRenderer.class, surface));
+        register(FLOWERMAP, new Renderer.Builder(FLOWERMAP, "FlowerMap", FlowerMapRenderer.class, surface));
+        register(INHABITED, new Renderer.Builder(INHABITED, "Inhabited", InhabitedRenderer.class, inhabited));
     }
 
     public @NonNull Renderer createRenderer(@NonNull RegionScanTask task, Renderer.@NonNull Builder builder) {
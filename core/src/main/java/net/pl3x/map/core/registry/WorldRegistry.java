@@ -40,6 +40,13 @@ public class WorldRegistry extends Registry<@NonNull World> {
         return world;
     }
 
+    @Override
+    public @NonNull World register(@NonNull String id, @NonNull World world) {
+        super.register(id, world);
+        Pl3xMap.api().getMemoryGovernor().register(world);
+        return world;
+    }
+
     @Override
     public @Nullable World unregister(@NonNull String id) {
         World world = this.entries.remove(id);
@@ -49,6 +56,7 @@ public class WorldRegistry extends Registry<@NonNull World> {
             world.getMarkerTask().cancel();
             world.getRegionFileWatcher().stop();
             world.cleanup();
+            world.getTileStorage().close();
         }
         return world;
     }
@@ -0,0 +1,377 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import net.pl3x.map.core.util.FileUtil;
+import net.pl3x.map.core.util.RenderArena;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Block, biome and height of every column in a blockinfo tile.
+ * <p>
+ * Tiles are stored gzipped and little endian. Both versions start with the
+ * magic 'pl3x' followed by 'map' and the version number in the low byte.
+ * <pre>
+ * version 1:
+ *   int minY
+ *   512 * 512 ints of 10 bit block, 10 bit biome, 12 bit y
+ *
+ * version 2:
+ *   int minY
+ *   int block palette size, block palette ints
+ *   int biome palette size, biome palette ints
+ *   byte block bits, byte biome bits
+ *   block indices, biome indices - as many entries per int as fit without spanning ints
+ *   heights - per row, varint pairs of run length and zigzag delta to the previous column
+ *             (the first column is relative to the first column of the previous row)
+ * </pre>
+ * Heights are relative to minY.
+ */
+public class BlockInfo {
+    public static final int SIZE = 512 * 512;
+
+    private static final int MAGIC = 0x706C3378; // pl3x
+    private static final int VERSION_1 = 0x6D617001; // map1
+    private static final int VERSION_2 = 0x6D617002; // map2
+
+    private final RenderArena arena;
+    private final IntBuffer blocks;
+    private final IntBuffer biomes;
+    private final IntBuffer heights;
+
+    private int minY;
+
+    public BlockInfo() {
+        this(RenderArena.HEAP);
+    }
+
+    /**
+     * Create an empty tile with its columns in the given arena.
+     *
+     * @param arena Arena to keep columns in
+     */
+    public BlockInfo(@NonNull RenderArena arena) {
+        this.arena = arena;
+        this.blocks = arena.allocateInts(SIZE);
+        this.biomes = arena.allocateInts(SIZE);
+        this.heights = arena.allocateInts(SIZE);
+    }
+
+    public int getMinY() {
+        return this.minY;
+    }
+
+    /**
+     * Change minY, keeping the absolute heights of all columns.
+     *
+     * @param minY New minY
+     */
+    public void rebase(int minY) {
+        int shift = this.minY - minY;
+        if (shift != 0) {
+            for (int i = 0; i < SIZE; i++) {
+                this.heights.put(i, this.heights.get(i) + shift);
+            }
+        }
+        this.minY = minY;
+    }
+
+    public int getBlock(int index) {
+        return this.blocks.get(index);
+    }
+
+    public int getBiome(int index) {
+        return this.biomes.get(index);
+    }
+
+    public int getY(int index) {
+        return this.heights.get(index) + this.minY;
+    }
+
+    public void set(int index, int block, int biome, int y) {
+        this.blocks.put(index, block);
+        this.biomes.put(index, biome);
+        this.heights.put(index, y - this.minY);
+    }
+
+    /**
+     * Copy a column from another tile.
+     *
+     * @param index Column index in this tile
+     * @param from  Tile to copy from
+     * @param fromIndex Column index in the other tile
+     */
+    public void copy(int index, @NonNull BlockInfo from, int fromIndex) {
+        set(index, from.getBlock(fromIndex), from.getBiome(fromIndex), from.getY(fromIndex));
+    }
+
+    /**
+     * Hand the column arrays back to their arena. Do not use this tile afterwards.
+     */
+    public void release() {
+        this.arena.release(this.blocks);
+        this.arena.release(this.biomes);
+        this.arena.release(this.heights);
+    }
+
+    /**
+     * Read a stored (gzipped) tile of either version into this tile.
+     *
+     * @param bytes Stored bytes
+     * @throws IOException if the data could not be read
+     */
+    public void read(byte @NonNull [] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(FileUtil.gunzip(bytes)).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a blockinfo tile");
+            }
+            switch (buffer.getInt()) {
+                case VERSION_1 -> readV1(buffer);
+                case VERSION_2 -> readV2(buffer);
+                default -> throw new IOException("Unknown blockinfo version");
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated blockinfo tile", e);
+        }
+    }
+
+    private void readV1(@NonNull ByteBuffer buffer) {
+        this.minY = buffer.getInt();
+        for (int i = 0; i < SIZE; i++) {
+            int packed = buffer.getInt();
+            this.blocks.put(i, packed >>> 22);
+            this.biomes.put(i, (packed >>> 12) & 1023);
+            this.heights.put(i, packed & 4095);
+        }
+    }
+
+    private void readV2(@NonNull ByteBuffer buffer) throws IOException {
+        this.minY = buffer.getInt();
+        int[] blockPalette = readPalette(buffer);
+        int[] biomePalette = readPalette(buffer);
+        int blockBits = buffer.get();
+        int biomeBits = buffer.get();
+        unpack(buffer, blockPalette, blockBits, this.blocks);
+        unpack(buffer, biomePalette, biomeBits, this.biomes);
+        int above = 0;
+        for (int z = 0; z < 512; z++) {
+            int row = z * 512;
+            int prev = above;
+            int x = 0;
+            while (x < 512) {
+                int run = readVarInt(buffer);
+                int delta = zigzagDecode(readVarInt(buffer));
+                if (run <= 0 || x + run > 512) {
+                    throw new IOException("Bad height run in blockinfo tile");
+                }
+                for (int end = x + run; x < end; x++) {
+                    prev += delta;
+                    this.heights.put(row + x, prev);
+                }
+            }
+            above = this.heights.get(row);
+        }
+    }
+
+    /**
+     * Encode this tile in the current version and gzip it for storage.
+     *
+     * @return stored bytes
+     * @throws IOException if the data could not be compressed
+     */
+    public byte @NonNull [] toBytes() throws IOException {
+        Palette blockPalette = new Palette(this.blocks);
+        Palette biomePalette = new Palette(this.biomes);
+
+        Output out = new Output(0x10000);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION_2);
+        out.writeInt(this.minY);
+        blockPalette.write(out);
+        biomePalette.write(out);
+        out.write(blockPalette.bits);
+        out.write(biomePalette.bits);
+        pack(out, blockPalette, this.blocks);
+        pack(out, biomePalette, this.biomes);
+
+        int above = 0;
+        for (int z = 0; z < 512; z++) {
+            int row = z * 512;
+            int prev = above;
+            int x = 0;
+            while (x < 512) {
+                int delta = this.heights.get(row + x) - prev;
+                int run = 1;
+                prev = this.heights.get(row + x);
+                while (x + run < 512 && this.heights.get(row + x + run) - prev == delta) {
+                    prev = this.heights.get(row + x + run);
+                    run++;
+                }
+                out.writeVarInt(run);
+                out.writeVarInt(zigzagEncode(delta));
+                x += run;
+            }
+            above = this.heights.get(row);
+        }
+
+        return FileUtil.gzip(out.toByteArray());
+    }
+
+    private static int @NonNull [] readPalette(@NonNull ByteBuffer buffer) throws IOException {
+        int size = buffer.getInt();
+        if (size < 1 || size > SIZE) {
+            throw new IOException("Bad palette size in blockinfo tile");
+        }
+        int[] palette = new int[size];
+        for (int i = 0; i < size; i++) {
+            palette[i] = buffer.getInt();
+        }
+        return palette;
+    }
+
+    private static void unpack(@NonNull ByteBuffer buffer, int @NonNull [] palette, int bits, @NonNull IntBuffer values) throws IOException {
+        if (bits == 0) {
+            for (int i = 0; i < SIZE; i++) {
+                values.put(i, palette[0]);
+            }
+            return;
+        }
+        if (bits < 0 || bits > 32) {
+            throw new IOException("Bad bits per entry in blockinfo tile");
+        }
+        int perWord = 32 / bits;
+        int mask = (int) ((1L << bits) - 1);
+        for (int i = 0; i < SIZE; i += perWord) {
+            int word = buffer.getInt();
+            for (int j = 0, end = Math.min(perWord, SIZE - i); j < end; j++) {
+                values.put(i + j, palette[(word >>> (j * bits)) & mask]);
+            }
+        }
+    }
+
+    private static void pack(@NonNull Output out, @NonNull Palette palette, @NonNull IntBuffer values) {
+        int bits = palette.bits;
+        if (bits == 0) {
+            return;
+        }
+        int perWord = 32 / bits;
+        for (int i = 0; i < SIZE; i += perWord) {
+            int word = 0;
+            for (int j = 0, end = Math.min(perWord, SIZE - i); j < end; j++) {
+                word |= palette.indexOf(values.get(i + j)) << (j * bits);
+            }
+            out.writeInt(word);
+        }
+    }
+
+    private static int readVarInt(@NonNull ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Bad varint in blockinfo tile");
+    }
+
+    private static int zigzagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int zigzagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static class Palette {
+        private final int[] values;
+        private final int[] lookup;
+        private final int bits;
+
+        private Palette(@NonNull IntBuffer data) {
+            // ids are registry indices, so a flat lookup table is small
+            int max = 0;
+            for (int i = 0; i < SIZE; i++) {
+                max = Math.max(max, data.get(i));
+            }
+            this.lookup = new int[max + 1];
+            Arrays.fill(this.lookup, -1);
+            int[] values = new int[16];
+            int size = 0;
+            for (int i = 0; i < SIZE; i++) {
+                int id = Math.max(data.get(i), 0);
+                if (this.lookup[id] < 0) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    this.lookup[id] = size;
+                    values[size++] = id;
+                }
+            }
+            this.values = Arrays.copyOf(values, size);
+            this.bits = size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+        }
+
+        private int indexOf(int value) {
+            return this.lookup[Math.max(value, 0)];
+        }
+
+        private void write(@NonNull Output out) {
+            out.writeInt(this.values.length);
+            for (int value : this.values) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+        private Output(int size) {
+            super(size);
+        }
+
+        private void writeInt(int value) {
+            write(value);
+            write(value >>> 8);
+            write(value >>> 16);
+            write(value >>> 24);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+    }
+}
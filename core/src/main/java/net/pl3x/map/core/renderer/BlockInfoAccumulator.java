@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.renderer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.pl3x.map.core.log.Logger;
+import net.pl3x.map.core.markers.Point;
+import net.pl3x.map.core.registry.RendererRegistry;
+import net.pl3x.map.core.storage.TileStorage;
+import net.pl3x.map.core.util.Mathf;
+import net.pl3x.map.core.util.RenderArena;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Collects zoomed out blockinfo tiles in memory while their regions render.
+ * <p>
+ * Each parent tile is read from storage once, patched by every child region,
+ * and written once all the children expected for this render are in. Only a
+ * few parents are kept in memory, the least recently used ones are written
+ * early and read back in if more of their children show up later.
+ * <p>
+ * Parents live in their own {@link RenderArena}, so they are kept off-heap
+ * along with the region renders when that is enabled.
+ */
+public class BlockInfoAccumulator {
+    // each parent holds three 1 MiB arrays
+    private static final int MAX_PARENTS = 24;
+
+    private final World world;
+
+    // all guarded by this
+    private final Map<TileStorage.@NonNull Tile, @NonNull Parent> parents = new LinkedHashMap<>(16, 0.75F, true);
+    private final Map<TileStorage.@NonNull Tile, @NonNull Parent> writing = new HashMap<>();
+    private final Map<TileStorage.@NonNull Tile, @NonNull Integer> pending = new HashMap<>();
+
+    public BlockInfoAccumulator(@NonNull World world) {
+        this.world = world;
+    }
+
+    /**
+     * Get the highest zoom level blockinfo is produced for.
+     *
+     * @return max zoom level
+     */
+    public int getMaxZoom() {
+        int maxOut = this.world.getConfig().ZOOM_MAX_OUT;
+        int limit = this.world.getConfig().RENDER_BLOCKINFO_MAX_ZOOM;
+        return limit < 0 ? maxOut : Math.min(limit, maxOut);
+    }
+
+    /**
+     * Let the accumulator know which regions are about to render,
+     * so it knows when a parent tile has all of its children.
+     *
+     * @param regions Regions about to render
+     */
+    public void expect(@NonNull Collection<@NonNull Point> regions) {
+        int maxZoom = getMaxZoom();
+        synchronized (this) {
+            for (Point region : regions) {
+                for (int zoom = 1; zoom <= maxZoom; zoom++) {
+                    this.pending.merge(getTile(region, zoom), 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a freshly rendered region to all of its parent tiles.
+     *
+     * @param region Region position
+     * @param child  Blockinfo of the region
+     */
+    public void add(@NonNull Point region, @NonNull BlockInfo child) {
+        for (int zoom = 1; zoom <= getMaxZoom(); zoom++) {
+            int step = Mathf.pow2(zoom);
+            int size = 512 / step;
+            int baseX = (region.x() * size) & 511;
+            int baseZ = (region.z() * size) & 511;
+
+            Parent parent = acquire(getTile(region, zoom));
+            try {
+                synchronized (parent) {
+                    BlockInfo info = parent.load();
+                    info.rebase(child.getMinY());
+                    for (int x = 0; x < 512; x += step) {
+                        for (int z = 0; z < 512; z += step) {
+                            int index = (baseZ + (z / step)) * 512 + (baseX + (x / step));
+                            info.copy(index, child, z * 512 + x);
+                        }
+                    }
+                    parent.dirty = true;
+                }
+            } finally {
+                release(parent);
+            }
+        }
+    }
+
+    /**
+     * Write all parents still in memory and forget about any children that never showed up.
+     */
+    public void flush() {
+        List<Parent> retired = new ArrayList<>();
+        synchronized (this) {
+            this.pending.clear();
+            Iterator<Parent> iter = this.parents.values().iterator();
+            while (iter.hasNext()) {
+                Parent parent = iter.next();
+                if (parent.users == 0) {
+                    iter.remove();
+                    retire(parent, retired);
+                }
+            }
+        }
+        retired.forEach(this::write);
+    }
+
+    private synchronized @NonNull Parent acquire(TileStorage.@NonNull Tile tile) {
+        Parent parent = this.parents.get(tile);
+        if (parent == null) {
+            // pick up a parent that is still being written instead of reading a stale copy from storage
+            parent = this.writing.get(tile);
+            if (parent == null) {
+                parent = new Parent(tile);
+            }
+            this.parents.put(tile, parent);
+        }
+        parent.users++;
+        return parent;
+    }
+
+    private void release(@NonNull Parent parent) {
+        List<Parent> retired = new ArrayList<>();
+        synchronized (this) {
+            parent.users--;
+            // regions that were not expected have no count, so they are written right away
+            Integer left = this.pending.computeIfPresent(parent.tile, (k, v) -> v > 1 ? v - 1 : null);
+            if (left == null && parent.users == 0 && this.parents.remove(parent.tile, parent)) {
+                retire(parent, retired);
+            }
+            // write out the least recently used idle parents
+            Iterator<Parent> iter = this.parents.values().iterator();
+            while (this.parents.size() > MAX_PARENTS && iter.hasNext()) {
+                Parent idle = iter.next();
+                if (idle.users == 0) {
+                    iter.remove();
+                    retire(idle, retired);
+                }
+            }
+        }
+        retired.forEach(this::write);
+    }
+
+    private void retire(@NonNull Parent parent, @NonNull List<@NonNull Parent> retired) {
+        parent.writes++;
+        this.writing.put(parent.tile, parent);
+        retired.add(parent);
+    }
+
+    private void write(@NonNull Parent parent) {
+        synchronized (parent) {
+            if (parent.info != null && parent.dirty) {
+                try {
+                    this.world.getTileStorage().write(parent.tile, parent.info.toBytes());
+                    parent.dirty = false;
+                } catch (IOException e) {
+                    Logger.warn("Could not write blockinfo tile " + parent.tile.getPath() + " for " + this.world.getName(), e);
+                }
+            }
+        }
+        boolean done;
+        synchronized (this) {
+            done = --parent.writes == 0 && this.writing.remove(parent.tile, parent) && this.parents.get(parent.tile) != parent;
+        }
+        if (done) {
+            // nobody can get to this parent anymore
+            parent.unload();
+        }
+    }
+
+    private static TileStorage.@NonNull Tile getTile(@NonNull Point region, int zoom) {
+        int step = Mathf.pow2(zoom);
+        return new TileStorage.Tile(zoom, RendererRegistry.BLOCKINFO,
+                Math.floorDiv(region.x(), step),
+                Math.floorDiv(region.z(), step),
+                BlockInfoRenderer.EXTENSION);
+    }
+
+    private class Parent {
+        private final TileStorage.Tile tile;
+
+        private RenderArena arena;
+        private BlockInfo info;
+        private boolean dirty;
+
+        // guarded by the accumulator
+        private int users;
+        private int writes;
+
+        private Parent(TileStorage.@NonNull Tile tile) {
+            this.tile = tile;
+        }
+
+        private @NonNull BlockInfo load() {
+            if (this.info == null) {
+                this.arena = RenderArena.create();
+                this.info = new BlockInfo(this.arena);
+                try {
+                    byte[] bytes = BlockInfoAccumulator.this.world.getTileStorage().read(this.tile);
+                    if (bytes != null) {
+                        this.info.read(bytes);
+                    }
+                } catch (Throwable ignore) {
+                    // silently fail - the file's fucked anyway so whatever
+                }
+            }
+            return this.info;
+        }
+
+        private void unload() {
+            synchronized (this) {
+                if (this.info != null) {
+                    this.arena.close();
+                    this.arena = null;
+                    this.info = null;
+                }
+            }
+        }
+    }
+}
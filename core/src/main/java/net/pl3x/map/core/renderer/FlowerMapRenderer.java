@@ -23,6 +23,7 @@
  */
 package net.pl3x.map.core.renderer;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import net.pl3x.map.core.Pl3xMap;
@@ -33,10 +34,20 @@ import net.pl3x.map.core.world.Block;
 import net.pl3x.map.core.world.Blocks;
 import net.pl3x.map.core.world.Chunk;
 import net.pl3x.map.core.world.Region;
+import net.pl3x.map.core.world.VisibilityMask;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 public class FlowerMapRenderer extends Renderer {
     private final Map<@NonNull Block, @NonNull Integer> colorMap = new HashMap<>();
+    private final int[] colors;
+
+    // one chunk worth of columns handed to the platform in a single batch
+    private final Chunk.BlockData[] data = new Chunk.BlockData[256];
+    private final Biome[] biomes = new Biome[256];
+    private final int[] blockX = new int[256];
+    private final int[] blockY = new int[256];
+    private final int[] blockZ = new int[256];
+    private final int[] flowers = new int[256];
 
     public FlowerMapRenderer(@NonNull RegionScanTask task, @NonNull Builder builder) {
         super(task, builder);
@@ -52,17 +63,67 @@ public class FlowerMapRenderer extends Renderer {
         this.colorMap.put(Blocks.CORNFLOWER, 0x4100FF);
         this.colorMap.put(Blocks.LILY_OF_THE_VALLEY, 0xFFFFFF);
         this.colorMap.put(Blocks.BLUE_ORCHID, 0x00BFFF);
+
+        // flower colors by block index, -1 for blocks without a color
+        int size = 0;
+        for (Block block : this.colorMap.keySet()) {
+            size = Math.max(size, block.getIndex() + 1);
+        }
+        this.colors = new int[size];
+        Arrays.fill(this.colors, -1);
+        this.colorMap.forEach((block, color) -> this.colors[block.getIndex()] = color);
     }
 
     @Override
-    public void scanBlock(@NonNull Region region, @NonNull Chunk chunk, Chunk.@NonNull BlockData data, int blockX, int blockZ) {
-        int pixelColor = 0x7F7F7F;
+    public void scanChunk(@NonNull Region region, @NonNull Chunk chunk, int chunkX, int chunkZ) {
+        VisibilityMask visibility = getRegionScanTask().getVisibility();
+        int bX = chunkX << 4;
+        int bZ = chunkZ << 4;
+        int count = 0;
+        for (int blockX = bX; blockX < bX + 16; blockX++) {
+            for (int blockZ = bZ; blockZ < bZ + 16; blockZ++) {
+                // skip any blocks that do not need to be rendered due to visibility limits
+                if (!visibility.containsBlock(blockX, blockZ)) {
+                    continue;
+                }
+                Chunk.BlockData data = chunk.getData(blockX, blockZ);
+                if (data == null) {
+                    continue;
+                }
+                this.data[count] = data;
+                this.biomes[count] = data.getBiome(region, blockX, blockZ);
+                this.blockX[count] = blockX;
+                this.blockY[count] = data.getBlockY();
+                this.blockZ[count] = blockZ;
+                count++;
+            }
+        }
+        if (count == 0 || getWorld().isPaused()) {
+            return;
+        }
 
-        Biome biome = data.getBiome(region, blockX, blockZ);
+        Pl3xMap.api().getFlowers(getWorld(), this.biomes, this.blockX, this.blockY, this.blockZ, count, this.flowers);
 
+        for (int i = 0; i < count; i++) {
+            scanBlock(region, this.data[i], this.biomes[i], this.flowers[i], this.blockX[i], this.blockZ[i]);
+            this.data[i] = null;
+            this.biomes[i] = null;
+        }
+    }
+
+    @Override
+    public void scanBlock(@NonNull Region region, @NonNull Chunk chunk, Chunk.@NonNull BlockData data, int blockX, int blockZ) {
+        Biome biome = data.getBiome(region, blockX, blockZ);
         Block flower = Pl3xMap.api().getFlower(region.getWorld(), biome, blockX, data.getBlockY(), blockZ);
-        if (flower != null) {
-            pixelColor = (0xFF << 24) | (this.colorMap.getOrDefault(flower, pixelColor) & 0xFFFFFF);
+        scanBlock(region, data, biome, flower == null ? -1 : flower.getIndex(), blockX, blockZ);
+    }
+
+    private void scanBlock(@NonNull Region region, Chunk.@NonNull BlockData data, @NonNull Biome biome, int flower, int blockX, int blockZ) {
+        int pixelColor = 0x7F7F7F;
+
+        if (flower >= 0) {
+            int color = flower < this.colors.length ? this.colors[flower] : -1;
+            pixelColor = (0xFF << 24) | ((color < 0 ? pixelColor : color) & 0xFFFFFF);
         }
 
         // work out the heightmap
@@ -71,7 +132,7 @@ public class FlowerMapRenderer extends Renderer {
         // fluid stuff
         if (data.getFluidState() != null) {
             if (getWorld().getConfig().RENDER_TRANSLUCENT_FLUIDS) {
-                int fluidColor = fancyFluids(region, biome, data.getFluidState(), blockX, blockZ, (data.getFluidY() - data.getBlockY()) * 0.025F);
+                int fluidColor = fancyFluids(region, biome, data.getFluidState(), blockX, blockZ, data.getFluidY() - data.getBlockY());
                 pixelColor = Colors.blend(fluidColor, pixelColor);
             } else {
                 pixelColor = Colors.getWaterColor(region, biome, blockX, blockZ);
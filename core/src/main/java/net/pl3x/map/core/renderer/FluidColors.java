@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.renderer;
+
+import net.pl3x.map.core.util.Colors;
+import net.pl3x.map.core.util.Mathf;
+import net.pl3x.map.core.world.Biome;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Fancy fluid colors by fluid depth (fluid Y minus block Y), and per biome for unblended water.
+ * <p>
+ * Every depth past {@link #MAX_DEPTH} gives the same colors, so the tables stay tiny.
+ */
+public class FluidColors {
+    public static final int MAX_DEPTH = 15;
+
+    private static final float[] WATER_DELTA = new float[MAX_DEPTH + 1];
+    private static final int[] WATER_ALPHA = new int[MAX_DEPTH + 1];
+    private static final float[] LAVA_DELTA = new float[MAX_DEPTH + 1];
+
+    static {
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+            WATER_DELTA[depth] = waterDelta(depth);
+            WATER_ALPHA[depth] = waterAlpha(depth);
+            LAVA_DELTA[depth] = lavaDelta(depth);
+        }
+    }
+
+    private final World world;
+
+    private volatile Biome[] biomes;
+    private volatile int[] water;
+
+    public FluidColors(@NonNull World world) {
+        this.world = world;
+    }
+
+    /**
+     * Get the fancy color of unblended water in a biome.
+     *
+     * @param biome Biome of the column
+     * @param depth Fluid Y minus block Y
+     * @return water color
+     */
+    public int getWater(@NonNull Biome biome, int depth) {
+        if (this.water == null) {
+            build();
+        }
+        int index = biome.index();
+        // biomes not in the registry (like the default biome) are not in the table
+        if (depth < 0 || index >= this.biomes.length || this.biomes[index] != biome) {
+            return water(biome.water(), depth);
+        }
+        return this.water[index * (MAX_DEPTH + 1) + Math.min(depth, MAX_DEPTH)];
+    }
+
+    private synchronized void build() {
+        if (this.water != null) {
+            return;
+        }
+        int size = 0;
+        for (Biome biome : this.world.getBiomeRegistry()) {
+            size = Math.max(size, biome.index() + 1);
+        }
+        Biome[] biomes = new Biome[size];
+        int[] water = new int[size * (MAX_DEPTH + 1)];
+        for (Biome biome : this.world.getBiomeRegistry()) {
+            biomes[biome.index()] = biome;
+            for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+                water[biome.index() * (MAX_DEPTH + 1) + depth] = water(biome.water(), depth);
+            }
+        }
+        this.biomes = biomes;
+        this.water = water;
+    }
+
+    /**
+     * Get the fancy color of water.
+     *
+     * @param color Water color of the column
+     * @param depth Fluid Y minus block Y
+     * @return water color
+     */
+    public static int water(int color, int depth) {
+        if (depth < 0) {
+            return Colors.setAlpha(waterAlpha(depth), Colors.lerpARGB(color, 0xFF000000, waterDelta(depth)));
+        }
+        int d = Math.min(depth, MAX_DEPTH);
+        return Colors.setAlpha(WATER_ALPHA[d], Colors.lerpARGB(color, 0xFF000000, WATER_DELTA[d]));
+    }
+
+    /**
+     * Get the fancy color of lava.
+     *
+     * @param color Lava block color
+     * @param depth Fluid Y minus block Y
+     * @return lava color
+     */
+    public static int lava(int color, int depth) {
+        float delta = depth < 0 ? lavaDelta(depth) : LAVA_DELTA[Math.min(depth, MAX_DEPTH)];
+        return Colors.setAlpha(0xFF, Colors.lerpARGB(color, 0xFF000000, delta));
+    }
+
+    // the same math Renderer#fancyFluids does with a float depth
+
+    private static float waterDelta(int depth) {
+        return Mathf.clamp(0, 0.45F, Renderer.Easing.cubicOut(depth * 0.025F / 1.5F));
+    }
+
+    private static int waterAlpha(int depth) {
+        return (int) (Renderer.Easing.quinticOut(Mathf.clamp(0, 1, depth * 0.025F * 5F)) * 0xFF);
+    }
+
+    private static float lavaDelta(int depth) {
+        return Mathf.clamp(0, 0.3F, Renderer.Easing.cubicOut(depth * 0.025F / 1.5F));
+    }
+}
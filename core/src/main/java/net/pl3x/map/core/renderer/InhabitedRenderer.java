@@ -26,13 +26,28 @@ package net.pl3x.map.core.renderer;
 import net.pl3x.map.core.registry.RendererRegistry;
 import net.pl3x.map.core.renderer.task.RegionScanTask;
 import net.pl3x.map.core.util.Colors;
+import net.pl3x.map.core.util.Compositor;
 import net.pl3x.map.core.util.Mathf;
 import net.pl3x.map.core.world.Chunk;
 import net.pl3x.map.core.world.Region;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 public final class InhabitedRenderer extends Renderer {
+    // heatmap colors for inhabited time, quantized to 256 steps up to the maxed out time
+    private static final int[] HEATMAP = new int[256];
+
+    static {
+        for (int i = 0; i < HEATMAP.length; i++) {
+            // we hsb lerp between blue and red with ratio being the
+            // percent inhabited time is of the maxed out inhabited time
+            HEATMAP[i] = Colors.lerpHSB(0x880000FF, 0x88FF0000, i / 255F, false);
+        }
+    }
+
+    private final int[] row = new int[16];
+
     private Renderer basic;
+    private int inhabitedRGB;
 
     public InhabitedRenderer(@NonNull RegionScanTask task, @NonNull Builder builder) {
         super(task, builder);
@@ -44,6 +59,47 @@ public final class InhabitedRenderer extends Renderer {
         super.scanData(region);
     }
 
+    @Override
+    public void scanChunk(@NonNull Region region, @NonNull Chunk chunk, int chunkX, int chunkZ) {
+        float ratio = Mathf.clamp(0F, 1F, chunk.getInhabitedTime() / 3600000F);
+        this.inhabitedRGB = HEATMAP[Math.round(ratio * 255F)];
+
+        if (this.basic == null || !getRegionScanTask().getVisibility().containsWholeChunk(chunkX, chunkZ)) {
+            super.scanChunk(region, chunk, chunkX, chunkZ);
+            return;
+        }
+
+        // whole chunk is visible, blend the heatmap over the basic renderer a row at a time
+        int bX = chunkX << 4;
+        int bZ = chunkZ << 4;
+        for (int blockZ = bZ; blockZ < bZ + 16; blockZ++) {
+            if (getWorld().isPaused()) {
+                return;
+            }
+            // columns without data are left alone, same as the per block path
+            int present = 0;
+            for (int i = 0; i < 16; i++) {
+                if (chunk.getData(bX + i, blockZ) != null) {
+                    present |= 1 << i;
+                }
+            }
+            if (present == 0) {
+                continue;
+            }
+            this.basic.getTileImage().getPixels(bX, blockZ, this.row, 0, 16);
+            Compositor.blendRow(this.inhabitedRGB, this.row, 0, 16);
+            if (present == 0xFFFF) {
+                getTileImage().setPixels(bX, blockZ, this.row, 0, 16);
+                continue;
+            }
+            for (int i = 0; i < 16; i++) {
+                if ((present & (1 << i)) != 0) {
+                    getTileImage().setPixel(bX + i, blockZ, this.row[i]);
+                }
+            }
+        }
+    }
+
     @Override
     public void scanBlock(@NonNull Region region, @NonNull Chunk chunk, Chunk.@NonNull BlockData data, int blockX, int blockZ) {
         // get basic pixel color
@@ -56,14 +112,9 @@ public final class InhabitedRenderer extends Renderer {
             pixelColor = basicPixelColor(region, data.getBlockState(), data.getFluidState(), data.getBiome(region, blockX, blockZ), blockX, data.getBlockY(), blockZ, data.getFluidY());
         }
 
-        // we hsb lerp between blue and red with ratio being the
-        // percent inhabited time is of the maxed out inhabited time
-        float ratio = Mathf.clamp(0F, 1F, chunk.getInhabitedTime() / 3600000F);
-        int inhabitedRGB = Colors.lerpHSB(0x880000FF, 0x88FF0000, ratio, false);
-
         // set the color, mixing our heatmap on top
         // set a low enough alpha, so we can see the basic map underneath
-        pixelColor = Colors.blend(inhabitedRGB, pixelColor);
+        pixelColor = Colors.blend(this.inhabitedRGB, pixelColor);
 
         getTileImage().setPixel(blockX, blockZ, pixelColor);
     }
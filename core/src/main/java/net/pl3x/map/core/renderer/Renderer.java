@@ -23,8 +23,11 @@
  */
 package net.pl3x.map.core.renderer;
 
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
 import net.pl3x.map.core.Keyed;
 import net.pl3x.map.core.Pl3xMap;
 import net.pl3x.map.core.image.TileImage;
@@ -37,6 +40,7 @@ import net.pl3x.map.core.world.Biome;
 import net.pl3x.map.core.world.BlockState;
 import net.pl3x.map.core.world.Chunk;
 import net.pl3x.map.core.world.Region;
+import net.pl3x.map.core.world.VisibilityMask;
 import net.pl3x.map.core.world.World;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -80,45 +84,74 @@ public abstract class Renderer extends Keyed {
     }
 
     public void allocateData(@NonNull Point region) {
-        this.tileImage = new TileImage(getKey(), getWorld(), region);
+        this.tileImage = new TileImage(getKey(), getWorld(), region, getRegionScanTask().getArena());
     }
 
     public void saveData(@NonNull Point region) {
         this.tileImage.saveToDisk();
     }
 
+    public void releaseData() {
+        if (this.tileImage != null) {
+            this.tileImage.release();
+            this.tileImage = null;
+        }
+    }
+
     public void scanData(@NonNull Region region) {
+        VisibilityMask visibility = getRegionScanTask().getVisibility();
+        if (visibility.isOutside()) {
+            return;
+        }
+
         int cX = region.getX() << 5;
         int cZ = region.getZ() << 5;
 
         // iterate each chunk in this region
         for (int chunkX = cX; chunkX < cX + 32; chunkX++) {
-            int bX = chunkX << 4;
             for (int chunkZ = cZ; chunkZ < cZ + 32; chunkZ++) {
+                if (getWorld().isPaused()) {
+                    return;
+                }
                 // skip any blocks that do not need to be rendered due to visibility limits
-                if (!getWorld().visibleChunk(chunkX, chunkZ)) {
+                if (!visibility.containsChunk(chunkX, chunkZ)) {
                     continue;
                 }
-                int bZ = chunkZ << 4;
-                Chunk chunk = region.getChunk(chunkX, chunkZ);
-                // iterate each block in this chunk
-                for (int blockX = bX; blockX < bX + 16; blockX++) {
-                    for (int blockZ = bZ; blockZ < bZ + 16; blockZ++) {
-                        if (getWorld().isPaused()) {
-                            return;
-                        }
-                        // skip any blocks that do not need to be rendered due to visibility limits
-                        if (!getWorld().visibleBlock(blockX, blockZ)) {
-                            continue;
-                        }
-                        Chunk.BlockData data = chunk.getData(blockX, blockZ);
-                        if (data == null) {
-                            // this shouldn't happen, but just in case...
-                            continue;
-                        }
-                        scanBlock(region, chunk, data, blockX, blockZ);
-                    }
+                scanChunk(region, region.getChunk(chunkX, chunkZ), chunkX, chunkZ);
+            }
+        }
+    }
+
+    /**
+     * Scan a single chunk of the region.
+     * <p>
+     * Override to work out anything that is the same for the whole chunk once, before the blocks are scanned.
+     *
+     * @param region Region being scanned
+     * @param chunk  Chunk to scan
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     */
+    public void scanChunk(@NonNull Region region, @NonNull Chunk chunk, int chunkX, int chunkZ) {
+        VisibilityMask visibility = getRegionScanTask().getVisibility();
+        int bX = chunkX << 4;
+        int bZ = chunkZ << 4;
+        // iterate each block in this chunk
+        for (int blockX = bX; blockX < bX + 16; blockX++) {
+            for (int blockZ = bZ; blockZ < bZ + 16; blockZ++) {
+                if (getWorld().isPaused()) {
+                    return;
                 }
+                // skip any blocks that do not need to be rendered due to visibility limits
+                if (!visibility.containsBlock(blockX, blockZ)) {
+                    continue;
+                }
+                Chunk.BlockData data = chunk.getData(blockX, blockZ);
+                if (data == null) {
+                    // this shouldn't happen, but just in case...
+                    continue;
+                }
+                scanBlock(region, chunk, data, blockX, blockZ);
             }
         }
     }
@@ -149,7 +182,7 @@ public abstract class Renderer extends Keyed {
                 pixelColor = Colors.getWaterColor(region, biome, blockX, blockZ);
             } else {
                 // fancy fluids, yum
-                int fluidColor = fancyFluids(region, biome, fluidstate, blockX, blockZ, (fluidY - blockY) * 0.025F);
+                int fluidColor = fancyFluids(region, biome, fluidstate, blockX, blockZ, fluidY - blockY);
                 pixelColor = Colors.blend(fluidColor, pixelColor);
             }
         }
@@ -177,6 +210,20 @@ public abstract class Renderer extends Keyed {
         return color;
     }
 
+    /**
+     * Same as {@link #fancyFluids(Region, Biome, BlockState, int, int, float)} with the depth in blocks,
+     * reading from the precomputed {@link FluidColors} tables.
+     */
+    public int fancyFluids(@NonNull Region region, @NonNull Biome biome, @NonNull BlockState fluidstate, int blockX, int blockZ, int depth) {
+        if (!fluidstate.getBlock().isWater()) {
+            return FluidColors.lava(fluidstate.getBlock().color(), depth);
+        }
+        if (region.getWorld().getConfig().RENDER_BIOME_BLEND < 1) {
+            return region.getWorld().getFluidColors().getWater(biome, depth);
+        }
+        return FluidColors.water(Colors.getWaterColor(region, biome, blockX, blockZ), depth);
+    }
+
     public int calculateLight(@NonNull Chunk chunk, @Nullable BlockState fluidState, int blockX, int blockY, int blockZ, int fluidY, int pixelColor) {
         // get light level right above this block
         int blockLight;
@@ -208,11 +255,34 @@ public abstract class Renderer extends Keyed {
     public static final class Builder extends Keyed {
         private final @NonNull String name;
         private final @NonNull Class<@NonNull ? extends @NonNull Renderer> clazz;
+        private final @NonNull Set<Chunk.@NonNull Requirement> requirements;
 
+        /**
+         * Create a renderer builder that needs every kind of chunk data.
+         *
+         * @param key   Renderer key
+         * @param name  Renderer name
+         * @param clazz Renderer class
+         */
         public Builder(@NonNull String key, @NonNull String name, @NonNull Class<@NonNull ? extends @NonNull Renderer> clazz) {
+            this(key, name, clazz, EnumSet.allOf(Chunk.Requirement.class));
+        }
+
+        /**
+         * Create a renderer builder that only needs some chunk data.
+         *
+         * @param key          Renderer key
+         * @param name         Renderer name
+         * @param clazz        Renderer class
+         * @param requirements Chunk data the renderer reads
+         */
+        public Builder(@NonNull String key, @NonNull String name, @NonNull Class<@NonNull ? extends @NonNull Renderer> clazz, @NonNull Set<Chunk.@NonNull Requirement> requirements) {
             super(key);
             this.name = name;
             this.clazz = clazz;
+            EnumSet<Chunk.Requirement> set = EnumSet.noneOf(Chunk.Requirement.class);
+            set.addAll(requirements);
+            this.requirements = Collections.unmodifiableSet(set);
         }
 
         public @NonNull String getName() {
@@ -223,6 +293,10 @@ public abstract class Renderer extends Keyed {
             return clazz;
         }
 
+        public @NonNull Set<Chunk.@NonNull Requirement> getRequirements() {
+            return requirements;
+        }
+
         @Override
         public boolean equals(@Nullable Object obj) {
             if (obj == this) return true;
@@ -23,9 +23,7 @@
  */
 package net.pl3x.map.core.renderer.heightmap;
 
-import net.pl3x.map.core.world.Chunk;
 import net.pl3x.map.core.world.Region;
-import org.checkerframework.checker.nullness.qual.NonNull;
 
 public class EvenOddLowContrastHeightmap extends Heightmap {
     public EvenOddLowContrastHeightmap() {
@@ -34,18 +32,14 @@ public class EvenOddLowContrastHeightmap extends Heightmap {
 
     @Override
     @SuppressWarnings("DuplicatedCode")
-    public int getColor(@NonNull Region region, int blockX, int blockZ) {
-        Chunk.BlockData origin = region.getWorld().getChunk(region, blockX >> 4, blockZ >> 4).getData(blockX, blockZ);
-        Chunk.BlockData west = region.getWorld().getChunk(region, (blockX - 1) >> 4, blockZ >> 4).getData(blockX - 1, blockZ);
-        Chunk.BlockData north = region.getWorld().getChunk(region, blockX >> 4, (blockZ - 1) >> 4).getData(blockX, blockZ - 1);
+    public int getColor(int y, int west, int north) {
         int heightColor = 0x22;
-        if (origin != null) {
-            int y = origin.getBlockY();
-            if (west != null) {
-                heightColor = getColor(y, west.getBlockY(), heightColor, 0x11);
+        if (y != Region.NO_HEIGHT) {
+            if (west != Region.NO_HEIGHT) {
+                heightColor = getColor(y, west, heightColor, 0x11);
             }
-            if (north != null) {
-                heightColor = getColor(y, north.getBlockY(), heightColor, 0x11);
+            if (north != Region.NO_HEIGHT) {
+                heightColor = getColor(y, north, heightColor, 0x11);
             }
             if (y % 2 == 1) {
                 heightColor += 0x06;
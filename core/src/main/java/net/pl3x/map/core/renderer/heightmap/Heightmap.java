@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Objects;
 import net.pl3x.map.core.Keyed;
 import net.pl3x.map.core.util.Mathf;
+import net.pl3x.map.core.world.Chunk;
 import net.pl3x.map.core.world.Region;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -39,7 +40,45 @@ public abstract class Heightmap extends Keyed {
         super(name);
     }
 
-    public abstract int getColor(@NonNull Region region, int blockX, int blockZ);
+    /**
+     * Get the shade for a column.
+     * <p>
+     * Feeds {@link #getColor(int, int, int)} from the region's height grid. Heightmaps that need
+     * more than the heights of a column and its west and north neighbors can still override this.
+     *
+     * @param region Region being rendered
+     * @param blockX Block X
+     * @param blockZ Block Z
+     * @return shade color
+     */
+    public int getColor(@NonNull Region region, int blockX, int blockZ) {
+        if ((blockX >> 9) != region.getX() || (blockZ >> 9) != region.getZ()) {
+            return getColor(height(region, blockX, blockZ), height(region, blockX - 1, blockZ), height(region, blockX, blockZ - 1));
+        }
+        int[] heights = region.getHeights();
+        int index = Region.heightIndex(blockX, blockZ);
+        return getColor(heights[index], heights[index - 1], heights[index - Region.HEIGHTS_WIDTH]);
+    }
+
+    /**
+     * Get the shade for a column from its height and the heights of its west and north neighbors.
+     * <p>
+     * Defaults to the flat shade of the none heightmap, for heightmaps that only override
+     * {@link #getColor(Region, int, int)}.
+     *
+     * @param y     Height of the column, or {@link Region#NO_HEIGHT}
+     * @param west  Height of the column to the west, or {@link Region#NO_HEIGHT}
+     * @param north Height of the column to the north, or {@link Region#NO_HEIGHT}
+     * @return shade color
+     */
+    public int getColor(int y, int west, int north) {
+        return 0x22 << 24;
+    }
+
+    private static int height(@NonNull Region region, int blockX, int blockZ) {
+        Chunk.BlockData data = region.getWorld().getChunk(region, blockX >> 4, blockZ >> 4).getData(blockX, blockZ);
+        return data == null ? Region.NO_HEIGHT : data.getBlockY();
+    }
 
     public int getColor(int y1, int y2, int heightColor, int step) {
         if (y1 > y2) {
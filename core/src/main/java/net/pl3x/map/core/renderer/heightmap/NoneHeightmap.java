@@ -35,4 +35,9 @@ public class NoneHeightmap extends Heightmap {
     public int getColor(@NonNull Region region, int blockX, int blockZ) {
         return 0x22 << 24;
     }
+
+    @Override
+    public int getColor(int y, int west, int north) {
+        return 0x22 << 24;
+    }
 }
@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.renderer.task;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import net.pl3x.map.core.Pl3xMap;
+import net.pl3x.map.core.configuration.Config;
+import net.pl3x.map.core.log.Logger;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Holds back new region renders while the old generation of the heap is too full.
+ * <p>
+ * Watches how full the tenured memory pools are right after each garbage collection, using collection usage
+ * thresholds and GC notifications. Above the configured watermark new regions wait before they start and worlds
+ * keep fewer regions cached, until a collection brings the pools back under the watermark.
+ * Never forces a garbage collection itself.
+ */
+public class MemoryGovernor {
+    // do not hold a region back forever if the server just uses a lot of memory
+    private static final long MAX_WAIT = 30000L;
+    // once a region gave up waiting, later ones only slow down instead of stalling the render
+    private static final long BACKOFF = 1000L;
+
+    private final List<@NonNull MemoryPoolMXBean> pools = new ArrayList<>();
+    private final List<@NonNull NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = (notification, handback) -> update();
+    private final Object lock = new Object();
+
+    private volatile boolean pressure;
+    private volatile boolean timedOut;
+
+    /**
+     * Start watching the heap with the watermark from the config.
+     */
+    public void start() {
+        stop();
+        int watermark = Config.MEMORY_WATERMARK;
+        if (watermark <= 0 || watermark >= 100) {
+            return;
+        }
+        synchronized (this.lock) {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                // only tenured pools support both kinds of thresholds
+                if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported() || !pool.isCollectionUsageThresholdSupported()) {
+                    continue;
+                }
+                long max = pool.getUsage().getMax();
+                if (max <= 0) {
+                    continue;
+                }
+                pool.setCollectionUsageThreshold(max / 100 * watermark);
+                this.pools.add(pool);
+            }
+            if (this.pools.isEmpty()) {
+                Logger.debug("No tenured memory pools to watch, memory governor disabled");
+                return;
+            }
+            if (ManagementFactory.getMemoryMXBean() instanceof NotificationEmitter emitter) {
+                this.emitters.add(emitter);
+            }
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (collector instanceof NotificationEmitter emitter) {
+                    this.emitters.add(emitter);
+                }
+            }
+            this.emitters.forEach(emitter -> emitter.addNotificationListener(this.listener, null, null));
+            Logger.debug("Memory governor watching " + this.pools.stream().map(MemoryPoolMXBean::getName).toList() + " at " + watermark + "%");
+        }
+    }
+
+    /**
+     * Stop watching the heap and let every waiting region through.
+     */
+    public void stop() {
+        synchronized (this.lock) {
+            for (NotificationEmitter emitter : this.emitters) {
+                try {
+                    emitter.removeNotificationListener(this.listener);
+                } catch (ListenerNotFoundException ignore) {
+                }
+            }
+            this.emitters.clear();
+            this.pools.forEach(pool -> pool.setCollectionUsageThreshold(0));
+            this.pools.clear();
+            setPressure(false);
+        }
+    }
+
+    public boolean isUnderPressure() {
+        return this.pressure;
+    }
+
+    /**
+     * Shrink the region cache of a world that was loaded while memory is above the watermark.
+     *
+     * @param world Newly registered world
+     */
+    public void register(@NonNull World world) {
+        synchronized (this.lock) {
+            if (this.pressure) {
+                world.shrinkRegionCache(true);
+            }
+        }
+    }
+
+    /**
+     * Wait until memory is below the watermark before starting a new region.
+     * <p>
+     * Gives up waiting after a while, so renders keep going slowly on servers that always sit above the watermark.
+     * Once one region gave up, the following regions only wait a short moment each until memory drops again.
+     */
+    public void awaitAdmission() {
+        if (!this.pressure) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + (this.timedOut ? BACKOFF : MAX_WAIT);
+        synchronized (this.lock) {
+            while (this.pressure) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    if (!this.timedOut) {
+                        this.timedOut = true;
+                        Logger.debug("Memory still above watermark, starting regions anyway");
+                    }
+                    return;
+                }
+                try {
+                    this.lock.wait(Math.min(remaining, 1000L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // in case this jvm does not send gc notifications
+                update();
+            }
+        }
+    }
+
+    private void update() {
+        synchronized (this.lock) {
+            boolean pressure = false;
+            for (MemoryPoolMXBean pool : this.pools) {
+                MemoryUsage usage = pool.getCollectionUsage();
+                if (usage != null && pool.isCollectionUsageThresholdSupported() && usage.getUsed() >= pool.getCollectionUsageThreshold()) {
+                    pressure = true;
+                    break;
+                }
+            }
+            setPressure(pressure);
+        }
+    }
+
+    private void setPressure(boolean pressure) {
+        if (this.pressure == pressure) {
+            return;
+        }
+        this.pressure = pressure;
+        this.timedOut = false;
+        Logger.debug(pressure ? "Memory above watermark, holding back new regions" : "Memory back under watermark");
+        for (World world : Pl3xMap.api().getWorldRegistry().values()) {
+            world.shrinkRegionCache(pressure);
+        }
+        this.lock.notifyAll();
+    }
+}
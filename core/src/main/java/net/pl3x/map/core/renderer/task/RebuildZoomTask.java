@@ -0,0 +1,309 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.renderer.task;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pl3x.map.core.configuration.Config;
+import net.pl3x.map.core.image.MipMap;
+import net.pl3x.map.core.image.TileImage;
+import net.pl3x.map.core.image.io.IO;
+import net.pl3x.map.core.log.Logger;
+import net.pl3x.map.core.registry.RendererRegistry;
+import net.pl3x.map.core.renderer.BlockInfo;
+import net.pl3x.map.core.renderer.BlockInfoRenderer;
+import net.pl3x.map.core.storage.TileStorage;
+import net.pl3x.map.core.util.BufferPool;
+import net.pl3x.map.core.util.Mathf;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Rebuilds all zoomed out tiles of a world from its zoom 0 tiles, without reading any region files.
+ * <p>
+ * Runs as a fork/join quadtree reduction, so every parent tile is built from its four children exactly once.
+ */
+public class RebuildZoomTask {
+    private final World world;
+    private final AtomicInteger written = new AtomicInteger();
+
+    public RebuildZoomTask(@NonNull World world) {
+        this.world = world;
+    }
+
+    /**
+     * Rebuild every renderer (and blockinfo) of the world.
+     *
+     * @param executor Fork/join pool to run on
+     * @return number of tiles written
+     * @throws IOException if the zoom 0 tiles could not be listed
+     */
+    public int run(@NonNull Executor executor) throws IOException {
+        IO.Type io = IO.get(Config.WEB_TILE_FORMAT);
+        for (String renderer : this.world.getRenderers().keySet()) {
+            rebuild(executor, new ImageReducer(renderer, io), this.world.getConfig().ZOOM_MAX_OUT);
+        }
+        String blockInfo = this.world.getConfig().UI_BLOCKINFO;
+        if (blockInfo != null && !blockInfo.isEmpty()) {
+            rebuild(executor, new BlockInfoReducer(), this.world.getBlockInfoAccumulator().getMaxZoom());
+        }
+        return this.written.get();
+    }
+
+    private <T> void rebuild(@NonNull Executor executor, @NonNull Reducer<T> reducer, int maxZoom) throws IOException {
+        if (maxZoom < 1) {
+            return;
+        }
+
+        // every tile on every zoom level that has at least one zoom 0 tile below it
+        List<Set<Long>> levels = new ArrayList<>();
+        Set<Long> base = new HashSet<>();
+        for (TileStorage.Tile tile : this.world.getTileStorage().list(0, reducer.renderer)) {
+            if (tile.extension().equals(reducer.extension)) {
+                base.add(Mathf.asLong(tile.x(), tile.z()));
+            }
+        }
+        levels.add(base);
+        for (int zoom = 1; zoom <= maxZoom; zoom++) {
+            Set<Long> level = new HashSet<>();
+            for (long pos : levels.get(zoom - 1)) {
+                level.add(Mathf.asLong(Math.floorDiv(Mathf.longToX(pos), 2), Math.floorDiv(Mathf.longToZ(pos), 2)));
+            }
+            levels.add(level);
+        }
+
+        Logger.debug("Rebuilding " + levels.get(maxZoom).size() + " top level " + reducer.renderer + " tiles for " + this.world.getName());
+
+        CompletableFuture.allOf(levels.get(maxZoom).stream()
+                .map(pos -> CompletableFuture.runAsync(() -> {
+                    Node<T> root = new Node<>(reducer, levels, maxZoom, Mathf.longToX(pos), Mathf.longToZ(pos));
+                    T data = root.invoke();
+                    if (data != null) {
+                        reducer.release(data);
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new)
+        ).join();
+    }
+
+    private @NonNull TileStorage getStorage() {
+        return this.world.getTileStorage();
+    }
+
+    private class Node<T> extends RecursiveTask<T> {
+        private final Reducer<T> reducer;
+        private final List<Set<Long>> levels;
+        private final int zoom;
+        private final int x;
+        private final int z;
+
+        private Node(@NonNull Reducer<T> reducer, @NonNull List<Set<Long>> levels, int zoom, int x, int z) {
+            this.reducer = reducer;
+            this.levels = levels;
+            this.zoom = zoom;
+            this.x = x;
+            this.z = z;
+        }
+
+        @Override
+        protected @Nullable T compute() {
+            TileStorage.Tile tile = new TileStorage.Tile(this.zoom, this.reducer.renderer, this.x, this.z, this.reducer.extension);
+            if (this.zoom == 0) {
+                return this.reducer.read(tile);
+            }
+
+            List<Node<T>> children = new ArrayList<>(4);
+            for (int dz = 0; dz < 2; dz++) {
+                for (int dx = 0; dx < 2; dx++) {
+                    int childX = (this.x << 1) + dx;
+                    int childZ = (this.z << 1) + dz;
+                    if (this.levels.get(this.zoom - 1).contains(Mathf.asLong(childX, childZ))) {
+                        children.add(new Node<>(this.reducer, this.levels, this.zoom - 1, childX, childZ));
+                    }
+                }
+            }
+            invokeAll(children);
+
+            T parent = null;
+            for (Node<T> child : children) {
+                T data = child.join();
+                if (data == null) {
+                    continue;
+                }
+                if (parent == null) {
+                    parent = this.reducer.create();
+                }
+                this.reducer.reduce(data, parent, child.x & 1, child.z & 1);
+                this.reducer.release(data);
+            }
+            if (parent == null) {
+                return null;
+            }
+
+            try {
+                this.reducer.write(tile, parent);
+                RebuildZoomTask.this.written.incrementAndGet();
+            } catch (IOException e) {
+                Logger.warn("Could not write tile " + tile.getPath() + " for " + RebuildZoomTask.this.world.getName(), e);
+            }
+            return parent;
+        }
+    }
+
+    private abstract static class Reducer<T> {
+        private final String renderer;
+        private final String extension;
+
+        private Reducer(@NonNull String renderer, @NonNull String extension) {
+            this.renderer = renderer;
+            this.extension = extension;
+        }
+
+        abstract @Nullable T read(TileStorage.@NonNull Tile tile);
+
+        abstract @NonNull T create();
+
+        // shrink a child into its quadrant of the parent
+        abstract void reduce(@NonNull T child, @NonNull T parent, int dx, int dz);
+
+        abstract void write(TileStorage.@NonNull Tile tile, @NonNull T data) throws IOException;
+
+        abstract void release(@NonNull T data);
+    }
+
+    private class ImageReducer extends Reducer<int[]> {
+        private final IO.Type io;
+
+        private ImageReducer(@NonNull String renderer, IO.@NonNull Type io) {
+            super(renderer, io.getKey());
+            this.io = io;
+        }
+
+        @Override
+        int @Nullable [] read(TileStorage.@NonNull Tile tile) {
+            BufferedImage image;
+            try {
+                byte[] bytes = getStorage().read(tile);
+                image = bytes == null ? null : this.io.read(bytes);
+            } catch (IOException e) {
+                Logger.warn("Could not read tile " + tile.getPath() + " for " + RebuildZoomTask.this.world.getName(), e);
+                return null;
+            }
+            if (image == null) {
+                return null;
+            }
+            int[] pixels = BufferPool.acquireInts(512 * 512);
+            image.getRGB(0, 0, Math.min(512, image.getWidth()), Math.min(512, image.getHeight()), pixels, 0, 512);
+            for (int i = 0; i < pixels.length; i++) {
+                // fully transparent means nothing was rendered there
+                if ((pixels[i] >>> 24) == 0) {
+                    pixels[i] = 0;
+                }
+            }
+            return pixels;
+        }
+
+        @Override
+        int @NonNull [] create() {
+            return BufferPool.acquireInts(512 * 512);
+        }
+
+        @Override
+        void reduce(int @NonNull [] child, int @NonNull [] parent, int dx, int dz) {
+            MipMap.reduce(child, 512, parent, (dz << 8) * 512 + (dx << 8), 512);
+        }
+
+        @Override
+        void write(TileStorage.@NonNull Tile tile, int @NonNull [] pixels) throws IOException {
+            BufferedImage buffer = this.io.createBuffer();
+            TileImage.writePixels(this.io, buffer, pixels);
+            getStorage().write(tile, this.io.write(buffer));
+        }
+
+        @Override
+        void release(int @NonNull [] pixels) {
+            BufferPool.releaseInts(pixels);
+        }
+    }
+
+    private class BlockInfoReducer extends Reducer<BlockInfo> {
+        private BlockInfoReducer() {
+            super(RendererRegistry.BLOCKINFO, BlockInfoRenderer.EXTENSION);
+        }
+
+        @Override
+        @Nullable BlockInfo read(TileStorage.@NonNull Tile tile) {
+            BlockInfo info = new BlockInfo();
+            try {
+                byte[] bytes = getStorage().read(tile);
+                if (bytes != null) {
+                    info.read(bytes);
+                    return info;
+                }
+            } catch (IOException e) {
+                Logger.warn("Could not read tile " + tile.getPath() + " for " + RebuildZoomTask.this.world.getName(), e);
+            }
+            info.release();
+            return null;
+        }
+
+        @Override
+        @NonNull BlockInfo create() {
+            BlockInfo info = new BlockInfo();
+            info.rebase(RebuildZoomTask.this.world.getMinBuildHeight());
+            return info;
+        }
+
+        @Override
+        void reduce(@NonNull BlockInfo child, @NonNull BlockInfo parent, int dx, int dz) {
+            // blockinfo is sampled, not averaged, same as when rendering
+            parent.rebase(child.getMinY());
+            int base = (dz << 8) * 512 + (dx << 8);
+            for (int z = 0; z < 512; z += 2) {
+                for (int x = 0; x < 512; x += 2) {
+                    parent.copy(base + (z >> 1) * 512 + (x >> 1), child, z * 512 + x);
+                }
+            }
+        }
+
+        @Override
+        void write(TileStorage.@NonNull Tile tile, @NonNull BlockInfo info) throws IOException {
+            getStorage().write(tile, info.toBytes());
+        }
+
+        @Override
+        void release(@NonNull BlockInfo info) {
+            info.release();
+        }
+    }
+}
@@ -128,6 +128,7 @@ public class RegionFileWatcher implements Runnable {
                 key.reset();
 
                 Collection<Point> points = FileUtil.regionPathsToPoints(this.world, modifiedFiles);
+                points.forEach(point -> this.world.unloadRegion(point.x(), point.z()));
                 Pl3xMap.api().getRegionProcessor().addRegions(this.world, points);
             }
 
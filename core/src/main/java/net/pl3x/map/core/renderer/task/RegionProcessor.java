@@ -36,14 +36,15 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executor;
 import net.pl3x.map.core.Pl3xMap;
-import net.pl3x.map.core.configuration.Config;
 import net.pl3x.map.core.log.Logger;
 import net.pl3x.map.core.markers.Point;
 import net.pl3x.map.core.renderer.progress.Progress;
+import net.pl3x.map.core.util.BufferPool;
 import net.pl3x.map.core.util.Mathf;
 import net.pl3x.map.core.util.SpiralIterator;
 import net.pl3x.map.core.world.World;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class RegionProcessor {
     private final Map<@NonNull World, @NonNull Collection<@NonNull Point>> regionsToScan = new ConcurrentHashMap<>();
@@ -54,6 +55,10 @@ public class RegionProcessor {
 
     private CompletableFuture<@NonNull Void> future;
 
+    // worlds other tasks are working on, their regions stay queued until released
+    private final Set<@NonNull World> held = new HashSet<>();
+    private World processing;
+
     private boolean paused;
 
     private long timeStarted;
@@ -76,6 +81,30 @@ public class RegionProcessor {
         return this.regionsToScan.keySet();
     }
 
+    /**
+     * Keep the processor away from a world, for tasks that write its tiles themselves.
+     * <p>
+     * Regions queued for the world meanwhile are rendered after it is released again.
+     *
+     * @param world World to hold
+     * @return false if the world is rendering right now or already held
+     */
+    public synchronized boolean hold(@NonNull World world) {
+        return world != this.processing && this.held.add(world);
+    }
+
+    public synchronized void release(@NonNull World world) {
+        this.held.remove(world);
+    }
+
+    private synchronized boolean startProcessing(@Nullable World world) {
+        if (world != null && this.held.contains(world)) {
+            return false;
+        }
+        this.processing = world;
+        return true;
+    }
+
     public void start(long delay) {
         this.future = CompletableFuture.runAsync(() -> {
             // wait 10 seconds...
@@ -132,11 +161,18 @@ public class RegionProcessor {
             Iterator<Map.Entry<World, Collection<Point>>> iter = this.regionsToScan.entrySet().iterator();
             while (iter.hasNext()) {
                 Map.Entry<World, Collection<Point>> entry = iter.next();
-                iter.remove();
                 World world = entry.getKey();
+                if (!startProcessing(world)) {
+                    // leave it queued for the next run
+                    continue;
+                }
+                iter.remove();
                 Collection<Point> regions = entry.getValue();
-                process(world, regions);
-
+                try {
+                    process(world, regions);
+                } finally {
+                    startProcessing(null);
+                }
             }
         } catch (Throwable t) {
             t.printStackTrace();
@@ -196,6 +232,8 @@ public class RegionProcessor {
         getProgress().setTotalRegions(orderedRegionsToScan.size());
         getProgress().setTotalChunks(getProgress().getTotalRegions() * 1024L);
 
+        world.getBlockInfoAccumulator().expect(orderedRegionsToScan);
+
         CompletableFuture.allOf(orderedRegionsToScan.stream()
                 .map(pos -> CompletableFuture.runAsync(new RegionScanTask(world, pos), Pl3xMap.api().getRenderExecutor())
                         .whenComplete((result, throwable) -> {
@@ -205,11 +243,6 @@ public class RegionProcessor {
 
                             // set region modified time
                             world.getRegionModifiedState().set(Mathf.asLong(pos), this.timeStarted);
-
-                            // run the garbage collector
-                            if (Config.GC_WHEN_RUNNING) {
-                                System.gc();
-                            }
                         })
                 ).toArray(CompletableFuture[]::new)
         ).whenComplete((result, throwable) -> {
@@ -223,10 +256,8 @@ public class RegionProcessor {
             // free up some memory
             world.cleanup();
 
-            // run the garbage collector
-            if (Config.GC_WHEN_FINISHED) {
-                System.gc();
-            }
+            // report any render buffers that were never handed back
+            BufferPool.checkLeaks();
 
             // consider task as no longer running
             this.running = false;
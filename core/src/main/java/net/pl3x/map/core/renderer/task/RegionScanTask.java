@@ -33,7 +33,10 @@ import net.pl3x.map.core.log.Logger;
 import net.pl3x.map.core.markers.Point;
 import net.pl3x.map.core.registry.RendererRegistry;
 import net.pl3x.map.core.renderer.Renderer;
+import net.pl3x.map.core.util.FileUtil;
+import net.pl3x.map.core.util.RenderArena;
 import net.pl3x.map.core.world.Region;
+import net.pl3x.map.core.world.VisibilityMask;
 import net.pl3x.map.core.world.World;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -43,6 +46,9 @@ public class RegionScanTask implements Runnable {
     private final Point regionPos;
 
     private final Map<@NonNull String, @NonNull Renderer> renderers = new LinkedHashMap<>();
+    private final RenderArena arena = RenderArena.create();
+
+    private VisibilityMask visibility = VisibilityMask.INSIDE;
 
     public RegionScanTask(@NonNull World world, @NonNull Point regionPos) {
         this.world = world;
@@ -70,6 +76,24 @@ public class RegionScanTask implements Runnable {
         return this.renderers.get(id);
     }
 
+    /**
+     * Get the scratch memory for this region. Everything in it is freed once the task finishes.
+     *
+     * @return render arena
+     */
+    public @NonNull RenderArena getArena() {
+        return this.arena;
+    }
+
+    /**
+     * Get the visibility mask of the region being scanned, looked up once per region.
+     *
+     * @return visibility mask
+     */
+    public @NonNull VisibilityMask getVisibility() {
+        return this.visibility;
+    }
+
     public void cleanup() {
         this.renderers.clear();
     }
@@ -79,6 +103,9 @@ public class RegionScanTask implements Runnable {
         try {
             Logger.debug("[" + this.world.getName() + "] Scanning " + regionPos + " -- " + Thread.currentThread().getName());
 
+            // wait for memory to free up before taking on another region
+            Pl3xMap.api().getMemoryGovernor().awaitAdmission();
+
             if (getWorld().isPaused()) {
                 return;
             }
@@ -96,8 +123,13 @@ public class RegionScanTask implements Runnable {
             }
 
             saveImages();
+
+            FileUtil.syncPending();
         } catch (Throwable t) {
             t.printStackTrace();
+        } finally {
+            releaseImages();
+            this.arena.close();
         }
     }
 
@@ -121,15 +153,28 @@ public class RegionScanTask implements Runnable {
     }
 
     private void scanRegion(@NonNull Region region) {
-        for (Renderer renderer : this.renderers.values()) {
-            if (getWorld().isPaused()) {
-                return;
+        this.visibility = region.getVisibility();
+        try {
+            for (Renderer renderer : this.renderers.values()) {
+                if (getWorld().isPaused()) {
+                    return;
+                }
+                renderer.scanData(region);
             }
-            renderer.scanData(region);
+        } finally {
+            region.releaseBiomeBlend();
+            region.releaseBiomes();
+            region.releaseHeights();
         }
         Pl3xMap.api().getRegionProcessor().getProgress().increment();
     }
 
+    private void releaseImages() {
+        for (Renderer renderer : this.renderers.values()) {
+            renderer.releaseData();
+        }
+    }
+
     private void saveImages() {
         for (Renderer renderer : this.renderers.values()) {
             if (getWorld().isPaused()) {
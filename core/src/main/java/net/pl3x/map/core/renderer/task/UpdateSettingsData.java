@@ -112,6 +112,7 @@ public class UpdateSettingsData extends Task {
             zoom.put("default", config.ZOOM_DEFAULT);
             zoom.put("maxOut", config.ZOOM_MAX_OUT);
             zoom.put("maxIn", config.ZOOM_MAX_IN);
+            zoom.put("blockInfo", world.getBlockInfoAccumulator().getMaxZoom());
 
             Map<String, Object> ui = new LinkedHashMap<>();
             ui.put("link", config.UI_LINK);
@@ -127,6 +128,7 @@ public class UpdateSettingsData extends Task {
             settings.put("ui", ui);
 
             FileUtil.write(this.gson.toJson(settings), world.getTilesDirectory().resolve("settings.json"));
+            world.getTileStorage().getIndex().save();
 
             List<Object> renderers = new ArrayList<>();
             world.getRenderers().forEach((rendererKey, builder) -> {
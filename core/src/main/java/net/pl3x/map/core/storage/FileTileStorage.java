@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import net.pl3x.map.core.image.TileImage;
+import net.pl3x.map.core.util.FileUtil;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Stores every tile as its own file in the world's tiles directory. (default)
+ */
+public class FileTileStorage extends TileStorage {
+    public FileTileStorage(@NonNull World world) {
+        super(world);
+    }
+
+    public @NonNull Path getPath(@NonNull Tile tile) {
+        return getWorld().getTilesDirectory().resolve(tile.getPath());
+    }
+
+    @Override
+    public byte @Nullable [] read(@NonNull Tile tile) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = FileUtil.readAllBytes(getPath(tile));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return bytes.length == 0 ? null : bytes;
+    }
+
+    @Override
+    protected void store(@NonNull Tile tile, byte @NonNull [] data) throws IOException {
+        FileUtil.atomicWrite(data, getPath(tile));
+    }
+
+    @Override
+    public long lastModified(@NonNull Tile tile) {
+        try {
+            return FileUtil.getLastModified(getPath(tile));
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public @NonNull Collection<@NonNull Tile> list(int zoom, @NonNull String renderer) throws IOException {
+        Path dir = getWorld().getTilesDirectory().resolve(String.format(TileImage.DIR_PATH, zoom, renderer));
+        if (!Files.exists(dir)) {
+            return Collections.emptyList();
+        }
+        List<Tile> tiles = new ArrayList<>();
+        String prefix = String.format(TileImage.DIR_PATH, zoom, renderer);
+        try (Stream<Path> stream = Files.list(dir)) {
+            stream.forEach(path -> {
+                Tile tile = Tile.parse(prefix + path.getFileName());
+                if (tile != null) {
+                    tiles.add(tile);
+                }
+            });
+        }
+        return tiles;
+    }
+}
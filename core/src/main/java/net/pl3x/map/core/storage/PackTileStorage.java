@@ -0,0 +1,551 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import net.pl3x.map.core.configuration.Config;
+import net.pl3x.map.core.log.Logger;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Stores tiles in a few large append-only segment files instead of one file per tile.
+ * <p>
+ * Every write appends a self describing record to the newest segment and points the
+ * in-memory index at it. The index is persisted on flush, and anything appended after
+ * the last flush is recovered by scanning the tail of the segments on startup.
+ * Segments that are mostly overwritten records get compacted on flush.
+ * <p>
+ * Reads never lock. Appends hold a short lock while their record goes onto the end of
+ * the newest segment, and compaction copies records through that same append path, so
+ * tiles keep being served and written while a flush is running.
+ */
+public class PackTileStorage extends TileStorage {
+    private static final int RECORD_MAGIC = 0x706C3374; // pl3t
+    private static final int INDEX_MAGIC = 0x706C3369; // pl3i
+    private static final int INDEX_VERSION = 1;
+
+    // magic + key length + modified + data length
+    private static final int RECORD_HEADER = 4 + 4 + 8 + 4;
+    private static final int MAX_KEY_LENGTH = 1024;
+
+    private static final long SEGMENT_SIZE = 64L << 20;
+    private static final double COMPACT_RATIO = 0.5D;
+
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("^segment-(\\d+)\\.dat$");
+
+    private final Path directory;
+    private final Map<@NonNull String, @NonNull Entry> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<@NonNull Integer, @NonNull Segment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private volatile boolean dirty;
+    private volatile boolean closed;
+
+    public PackTileStorage(@NonNull World world) {
+        super(world);
+        this.directory = world.getTilesDirectory().resolve("pack");
+        try {
+            open();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open tile pack for " + world.getName(), e);
+        }
+    }
+
+    public @NonNull Path getDirectory() {
+        return this.directory;
+    }
+
+    @Override
+    public byte @Nullable [] read(@NonNull Tile tile) throws IOException {
+        String key = tile.getPath();
+        Entry entry = this.index.get(key);
+        while (entry != null && !this.closed) {
+            Segment segment = this.segments.get(entry.segment());
+            if (segment != null) {
+                ByteBuffer buffer = ByteBuffer.allocate(entry.length());
+                long offset = entry.offset();
+                try {
+                    io(segment, channel -> readFully(channel, buffer.clear(), offset));
+                    return buffer.array();
+                } catch (ClosedChannelException e) {
+                    if (this.index.get(key) == entry && !this.closed) {
+                        throw e;
+                    }
+                }
+            }
+            // compaction moved the record and dropped its segment, follow it
+            Entry moved = this.index.get(key);
+            if (moved == entry) {
+                return null;
+            }
+            entry = moved;
+        }
+        return null;
+    }
+
+    @Override
+    protected void store(@NonNull Tile tile, byte @NonNull [] data) throws IOException {
+        String key = tile.getPath();
+        this.appendLock.lock();
+        try {
+            Entry old = this.index.get(key);
+            // keep modified times increasing so they are usable as etags
+            long modified = System.currentTimeMillis();
+            if (old != null && modified <= old.modified()) {
+                modified = old.modified() + 1;
+            }
+            append(key, modified, data);
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    @Override
+    public long lastModified(@NonNull Tile tile) {
+        Entry entry = this.index.get(tile.getPath());
+        return entry == null ? -1 : entry.modified();
+    }
+
+    /**
+     * Get the stored length of a tile.
+     *
+     * @param tile Tile to check
+     * @return length in bytes, or -1 if the tile does not exist
+     */
+    public int length(@NonNull Tile tile) {
+        Entry entry = this.index.get(tile.getPath());
+        return entry == null ? -1 : entry.length();
+    }
+
+    @Override
+    public @NonNull Collection<@NonNull Tile> list(int zoom, @NonNull String renderer) {
+        List<Tile> tiles = new ArrayList<>();
+        for (String key : this.index.keySet()) {
+            Tile tile = Tile.parse(key);
+            if (tile != null && tile.zoom() == zoom && tile.renderer().equals(renderer)) {
+                tiles.add(tile);
+            }
+        }
+        return tiles;
+    }
+
+    @Override
+    public void flush() {
+        this.flushLock.lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            compact();
+            if (this.dirty) {
+                saveIndex();
+            }
+        } catch (IOException e) {
+            this.dirty = true;
+            Logger.warn("Could not flush tile pack for " + getWorld().getName(), e);
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.flushLock.lock();
+        try {
+            flush();
+            this.appendLock.lock();
+            try {
+                this.closed = true;
+                this.segments.values().forEach(Segment::drop);
+                this.segments.clear();
+                this.index.clear();
+            } finally {
+                this.appendLock.unlock();
+            }
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        if (!Files.exists(this.directory)) {
+            return; // nothing stored yet
+        }
+
+        // open all existing segments
+        try (Stream<Path> stream = Files.list(this.directory)) {
+            for (Path path : stream.toList()) {
+                Matcher matcher = SEGMENT_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    Segment segment = openSegment(Integer.parseInt(matcher.group(1)));
+                    this.segments.put(segment.id, segment);
+                }
+            }
+        }
+
+        // load the last persisted index and see how far into each segment it covers
+        Map<Integer, Long> indexed = loadIndex();
+
+        // recover anything appended after the index was last saved
+        for (Segment segment : this.segments.values()) {
+            scan(segment, indexed.getOrDefault(segment.id, 0L));
+        }
+
+        // drop entries pointing at data that no longer exists
+        Iterator<Entry> iter = this.index.values().iterator();
+        while (iter.hasNext()) {
+            Entry entry = iter.next();
+            Segment segment = this.segments.get(entry.segment());
+            if (segment == null || entry.offset() + entry.length() > segment.size) {
+                iter.remove();
+                this.dirty = true;
+            }
+        }
+
+        // work out how much of each segment is still live
+        this.segments.values().forEach(segment -> segment.live = 0);
+        this.index.forEach((key, entry) -> this.segments.get(entry.segment()).live += recordSize(key, entry.length()));
+
+        Logger.debug("Opened tile pack for " + getWorld().getName() + " with " + this.index.size() + " tiles in " + this.segments.size() + " segments");
+    }
+
+    private @NonNull Segment openSegment(int id) throws IOException {
+        Files.createDirectories(this.directory);
+        Path path = this.directory.resolve(String.format("segment-%05d.dat", id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, channel.size());
+    }
+
+    private @NonNull Segment activeSegment() throws IOException {
+        Map.Entry<Integer, Segment> last = this.segments.lastEntry();
+        if (last != null && last.getValue().size < SEGMENT_SIZE) {
+            return last.getValue();
+        }
+        Segment segment = openSegment(last == null ? 0 : last.getKey() + 1);
+        this.segments.put(segment.id, segment);
+        return segment;
+    }
+
+    // caller holds the append lock
+    private void append(@NonNull String key, long modified, byte @NonNull [] data) throws IOException {
+        if (this.closed) {
+            throw new IOException("Tile pack is closed");
+        }
+        Segment segment = activeSegment();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER + keyBytes.length + data.length);
+        buffer.putInt(RECORD_MAGIC)
+                .putInt(keyBytes.length)
+                .put(keyBytes)
+                .putLong(modified)
+                .putInt(data.length)
+                .put(data)
+                .flip();
+        long position = segment.size;
+        io(segment, channel -> {
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        });
+        long dataOffset = position + RECORD_HEADER + keyBytes.length;
+        segment.size = position + buffer.limit();
+        segment.live += buffer.limit();
+
+        Entry old = this.index.put(key, new Entry(segment.id, dataOffset, data.length, modified));
+        if (old != null) {
+            Segment oldSegment = this.segments.get(old.segment());
+            if (oldSegment != null) {
+                oldSegment.live -= recordSize(key, old.length());
+            }
+        }
+        this.dirty = true;
+    }
+
+    private void scan(@NonNull Segment segment, long from) throws IOException {
+        long size = segment.channel.size();
+        long position = Math.min(from, size);
+        ByteBuffer head = ByteBuffer.allocate(8);
+        ByteBuffer tail = ByteBuffer.allocate(12);
+        while (position + RECORD_HEADER <= size) {
+            head.clear();
+            readFully(segment.channel, head, position);
+            int magic = head.getInt(0);
+            int keyLength = head.getInt(4);
+            if (magic != RECORD_MAGIC || keyLength <= 0 || keyLength > MAX_KEY_LENGTH || position + RECORD_HEADER + keyLength > size) {
+                break;
+            }
+            ByteBuffer keyBytes = ByteBuffer.allocate(keyLength);
+            readFully(segment.channel, keyBytes, position + 8);
+            tail.clear();
+            readFully(segment.channel, tail, position + 8 + keyLength);
+            long modified = tail.getLong(0);
+            int length = tail.getInt(8);
+            long dataOffset = position + RECORD_HEADER + keyLength;
+            if (length < 0 || dataOffset + length > size) {
+                break;
+            }
+            this.index.put(new String(keyBytes.array(), StandardCharsets.UTF_8), new Entry(segment.id, dataOffset, length, modified));
+            this.dirty = true;
+            position = dataOffset + length;
+        }
+        if (position < size) {
+            // partial record from an interrupted write, throw it away
+            Logger.warn("Truncating damaged tile pack segment " + segment.path.getFileName() + " at " + position);
+            segment.channel.truncate(position);
+        }
+        segment.size = position;
+    }
+
+    private void compact() throws IOException {
+        Segment active = this.segments.isEmpty() ? null : this.segments.lastEntry().getValue();
+        List<Segment> sparse = new ArrayList<>();
+        for (Segment segment : this.segments.values()) {
+            if (segment != active && segment.live < segment.size * COMPACT_RATIO) {
+                sparse.add(segment);
+            }
+        }
+        if (sparse.isEmpty()) {
+            return;
+        }
+        Logger.debug("Compacting " + sparse.size() + " tile pack segments for " + getWorld().getName());
+
+        // copy live records forward without holding up readers or writers,
+        // new writes only ever go to the newest segment so nothing new lands in these
+        Map<String, Entry> moving = new HashMap<>();
+        for (Segment segment : sparse) {
+            this.index.forEach((key, entry) -> {
+                if (entry.segment() == segment.id) {
+                    moving.put(key, entry);
+                }
+            });
+        }
+        for (Map.Entry<String, Entry> move : moving.entrySet()) {
+            Entry entry = move.getValue();
+            ByteBuffer data = ByteBuffer.allocate(entry.length());
+            io(this.segments.get(entry.segment()), channel -> readFully(channel, data.clear(), entry.offset()));
+            this.appendLock.lock();
+            try {
+                // skip tiles that were rewritten while we were copying
+                if (this.index.get(move.getKey()) == entry) {
+                    append(move.getKey(), entry.modified(), data.array());
+                }
+            } finally {
+                this.appendLock.unlock();
+            }
+        }
+
+        // the copies have to be on disk, and in a saved index, before the originals go away
+        saveIndex();
+
+        for (Segment segment : sparse) {
+            this.segments.remove(segment.id);
+            segment.drop();
+            Files.deleteIfExists(segment.path);
+        }
+        this.dirty = true;
+    }
+
+    private @NonNull Map<@NonNull Integer, @NonNull Long> loadIndex() {
+        Map<Integer, Long> indexed = new HashMap<>();
+        Path path = this.directory.resolve("index.dat");
+        if (!Files.exists(path)) {
+            return indexed;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                throw new IOException("Unknown tile pack index format");
+            }
+            int segmentCount = in.readInt();
+            for (int i = 0; i < segmentCount; i++) {
+                indexed.put(in.readInt(), in.readLong());
+            }
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String key = in.readUTF();
+                this.index.put(key, new Entry(in.readInt(), in.readLong(), in.readInt(), in.readLong()));
+            }
+        } catch (IOException e) {
+            // rebuild everything from the segments instead
+            Logger.warn("Could not read tile pack index for " + getWorld().getName() + ", rebuilding it", e);
+            this.index.clear();
+            indexed.clear();
+        }
+        return indexed;
+    }
+
+    private void saveIndex() throws IOException {
+        // only index what was appended before this point, anything later is
+        // recovered by scanning the segment tails if we never get to save again
+        Map<Integer, Long> sizes = new HashMap<>();
+        this.appendLock.lock();
+        try {
+            this.dirty = false;
+            this.segments.forEach((id, segment) -> sizes.put(id, segment.size));
+        } finally {
+            this.appendLock.unlock();
+        }
+
+        // segments have to be on disk before an index pointing into them is
+        if (!Config.FSYNC.equalsIgnoreCase("none")) {
+            for (Segment segment : this.segments.values()) {
+                io(segment, channel -> channel.force(false));
+            }
+        }
+
+        List<Map.Entry<String, Entry>> entries = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : this.index.entrySet()) {
+            Entry entry = e.getValue();
+            Long size = sizes.get(entry.segment());
+            if (size != null && entry.offset() + entry.length() <= size) {
+                entries.add(e);
+            }
+        }
+
+        Files.createDirectories(this.directory);
+        Path path = this.directory.resolve("index.dat");
+        Path tmp = this.directory.resolve("index.dat.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(sizes.size());
+            for (Map.Entry<Integer, Long> segment : sizes.entrySet()) {
+                out.writeInt(segment.getKey());
+                out.writeLong(segment.getValue());
+            }
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeInt(entry.segment());
+                out.writeLong(entry.offset());
+                out.writeInt(entry.length());
+                out.writeLong(entry.modified());
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // segment channels are shared, and an interrupted thread (renders are cancelled with
+    // shutdownNow) closes a channel for everyone using it, so reopen it instead of failing
+    // every later read and write. the interrupted thread itself still gets its exception
+    private void io(@NonNull Segment segment, @NonNull ChannelIO io) throws IOException {
+        while (true) {
+            FileChannel channel = segment.channel;
+            try {
+                io.run(channel);
+                return;
+            } catch (ClosedChannelException e) {
+                if (this.closed || !segment.reopen(channel) || e instanceof ClosedByInterruptException) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static int recordSize(@NonNull String key, int length) {
+        return RECORD_HEADER + key.getBytes(StandardCharsets.UTF_8).length + length;
+    }
+
+    private static void readFully(@NonNull FileChannel channel, @NonNull ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) {
+                throw new IOException("Unexpected end of tile pack segment");
+            }
+        }
+        buffer.flip();
+    }
+
+    private record Entry(int segment, long offset, int length, long modified) {
+    }
+
+    private interface ChannelIO {
+        void run(@NonNull FileChannel channel) throws IOException;
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private volatile FileChannel channel;
+        // only changed while holding the append lock
+        private volatile long size;
+        private volatile long live;
+        private boolean dropped;
+
+        private Segment(int id, @NonNull Path path, @NonNull FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+
+        // returns false once the segment was compacted away or the pack closed
+        private synchronized boolean reopen(@NonNull FileChannel broken) throws IOException {
+            if (this.dropped) {
+                return false;
+            }
+            if (this.channel == broken && !broken.isOpen()) {
+                this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            return true;
+        }
+
+        private synchronized void drop() {
+            this.dropped = true;
+            try {
+                this.channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
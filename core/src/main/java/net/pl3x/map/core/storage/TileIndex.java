@@ -0,0 +1,226 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import net.pl3x.map.core.log.Logger;
+import net.pl3x.map.core.util.FileUtil;
+import net.pl3x.map.core.util.Mathf;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Keeps track of which tiles exist for each zoom level of a world.
+ * <p>
+ * Published as a small binary file next to the world's settings so the webmap
+ * never has to request tiles that were never rendered.
+ * <pre>
+ * int  magic ('pl3x')
+ * byte version
+ * byte zoom level count
+ * per zoom level:
+ *   byte encoding
+ *   0 - bitmap: int minX, int minZ, int width, int height,
+ *       then width * height bits, row major, least significant bit first
+ *   1 - list:   int count, then count pairs of int x, int z
+ * </pre>
+ * The list encoding is only used when tiles are too spread out for a bitmap to be smaller.
+ */
+public class TileIndex {
+    public static final String FILE_NAME = "tiles.bin";
+
+    private static final int MAGIC = 0x706C3378; // pl3x
+    private static final int VERSION = 1;
+
+    private final World world;
+    private final Map<@NonNull Integer, @NonNull Set<@NonNull Long>> tiles = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+    private volatile boolean dirty;
+
+    public TileIndex(@NonNull World world) {
+        this.world = world;
+    }
+
+    public @NonNull Path getPath() {
+        return this.world.getTilesDirectory().resolve(FILE_NAME);
+    }
+
+    public void add(int zoom, int x, int z) {
+        if (this.tiles.computeIfAbsent(zoom, k -> ConcurrentHashMap.newKeySet()).add(Mathf.asLong(x, z))) {
+            this.dirty = true;
+        }
+    }
+
+    public boolean has(int zoom, int x, int z) {
+        Set<Long> set = this.tiles.get(zoom);
+        return set != null && set.contains(Mathf.asLong(x, z));
+    }
+
+    /**
+     * Load the published index, or rebuild it from the tile storage if there is none.
+     * <p>
+     * Tiles added while loading are kept.
+     */
+    public void load() {
+        Path path = getPath();
+        if (Files.exists(path)) {
+            // read into a separate map so a bad file never touches tiles added meanwhile
+            Map<Integer, Set<Long>> published = new HashMap<>();
+            try (InputStream in = Files.newInputStream(path)) {
+                read(new DataInputStream(in), published);
+                published.forEach((zoom, set) -> this.tiles.computeIfAbsent(zoom, k -> ConcurrentHashMap.newKeySet()).addAll(set));
+                this.loaded = true;
+                return;
+            } catch (IOException e) {
+                Logger.warn("Could not read tile index for " + this.world.getName() + ", rebuilding it", e);
+            }
+        }
+        rebuild();
+        this.loaded = true;
+    }
+
+    /**
+     * Rebuild the index from what is in the tile storage.
+     */
+    public void rebuild() {
+        TileStorage storage = this.world.getTileStorage();
+        for (int zoom = 0; zoom <= this.world.getConfig().ZOOM_MAX_OUT; zoom++) {
+            for (String renderer : this.world.getRenderers().keySet()) {
+                try {
+                    for (TileStorage.Tile tile : storage.list(zoom, renderer)) {
+                        add(tile.zoom(), tile.x(), tile.z());
+                    }
+                } catch (IOException e) {
+                    Logger.warn("Could not list tiles for " + this.world.getName(), e);
+                }
+            }
+        }
+        this.dirty = true;
+    }
+
+    /**
+     * Publish the index if anything changed since it was last published.
+     * <p>
+     * Does nothing until the index has been loaded, so a partial index is never published.
+     */
+    public void save() {
+        if (!this.loaded || !this.dirty) {
+            return;
+        }
+        this.dirty = false;
+        try {
+            FileUtil.atomicWrite(toBytes(), getPath());
+        } catch (IOException e) {
+            this.dirty = true;
+            Logger.warn("Could not save tile index for " + this.world.getName(), e);
+        }
+    }
+
+    public byte @NonNull [] toBytes() throws IOException {
+        int zooms = this.world.getConfig().ZOOM_MAX_OUT + 1;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(zooms);
+        for (int zoom = 0; zoom < zooms; zoom++) {
+            Set<Long> set = this.tiles.get(zoom);
+            Long[] positions = set == null ? new Long[0] : set.toArray(new Long[0]);
+            int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+            for (long pos : positions) {
+                int x = Mathf.longToX(pos), z = Mathf.longToZ(pos);
+                minX = Math.min(minX, x);
+                minZ = Math.min(minZ, z);
+                maxX = Math.max(maxX, x);
+                maxZ = Math.max(maxZ, z);
+            }
+            long width = positions.length == 0 ? 0 : (long) maxX - minX + 1;
+            long height = positions.length == 0 ? 0 : (long) maxZ - minZ + 1;
+            if (width * height > (long) positions.length * 64) {
+                out.writeByte(1);
+                out.writeInt(positions.length);
+                for (long pos : positions) {
+                    out.writeInt(Mathf.longToX(pos));
+                    out.writeInt(Mathf.longToZ(pos));
+                }
+                continue;
+            }
+            byte[] bitmap = new byte[(int) ((width * height + 7) >> 3)];
+            for (long pos : positions) {
+                long bit = (Mathf.longToZ(pos) - minZ) * width + (Mathf.longToX(pos) - minX);
+                bitmap[(int) (bit >> 3)] |= (byte) (1 << (bit & 7));
+            }
+            out.writeByte(0);
+            out.writeInt(positions.length == 0 ? 0 : minX);
+            out.writeInt(positions.length == 0 ? 0 : minZ);
+            out.writeInt((int) width);
+            out.writeInt((int) height);
+            out.write(bitmap);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void read(@NonNull DataInputStream in, @NonNull Map<@NonNull Integer, @NonNull Set<@NonNull Long>> tiles) throws IOException {
+        if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+            throw new IOException("Unknown tile index format");
+        }
+        int zooms = in.readUnsignedByte();
+        for (int zoom = 0; zoom < zooms; zoom++) {
+            if (in.readUnsignedByte() == 1) {
+                int count = in.readInt();
+                Set<Long> set = tiles.computeIfAbsent(zoom, k -> new HashSet<>());
+                for (int i = 0; i < count; i++) {
+                    set.add(Mathf.asLong(in.readInt(), in.readInt()));
+                }
+                continue;
+            }
+            int minX = in.readInt();
+            int minZ = in.readInt();
+            int width = in.readInt();
+            int height = in.readInt();
+            byte[] bitmap = new byte[(int) (((long) width * height + 7) >> 3)];
+            in.readFully(bitmap);
+            Set<Long> set = tiles.computeIfAbsent(zoom, k -> new HashSet<>());
+            for (int bit = 0; bit < width * height; bit++) {
+                if ((bitmap[bit >> 3] & (1 << (bit & 7))) != 0) {
+                    set.add(Mathf.asLong(minX + bit % width, minZ + bit / width));
+                }
+            }
+        }
+    }
+}
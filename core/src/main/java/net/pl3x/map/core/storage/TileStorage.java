@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.storage;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.pl3x.map.core.configuration.Config;
+import net.pl3x.map.core.image.TileImage;
+import net.pl3x.map.core.world.World;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Where a world's rendered tiles (images and blockinfo) are kept.
+ */
+public abstract class TileStorage {
+    private final World world;
+    private final TileIndex index;
+
+    public TileStorage(@NonNull World world) {
+        this.world = world;
+        this.index = new TileIndex(world);
+    }
+
+    /**
+     * Create the tile storage configured for the given world.
+     *
+     * @param world World to create storage for
+     * @return new tile storage
+     */
+    public static @NonNull TileStorage create(@NonNull World world) {
+        return switch (Config.WEB_TILE_STORAGE.toLowerCase(Locale.ROOT)) {
+            case "pack" -> new PackTileStorage(world);
+            default -> new FileTileStorage(world);
+        };
+    }
+
+    public @NonNull World getWorld() {
+        return this.world;
+    }
+
+    public @NonNull TileIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Read the stored bytes for a tile.
+     *
+     * @param tile Tile to read
+     * @return stored bytes, or null if the tile does not exist
+     * @throws IOException if the tile could not be read
+     */
+    public abstract byte @Nullable [] read(@NonNull Tile tile) throws IOException;
+
+    /**
+     * Store the bytes for a tile, replacing any existing data.
+     *
+     * @param tile Tile to write
+     * @param data Encoded tile data
+     * @throws IOException if the tile could not be written
+     */
+    public void write(@NonNull Tile tile, byte @NonNull [] data) throws IOException {
+        store(tile, data);
+        getIndex().add(tile.zoom(), tile.x(), tile.z());
+    }
+
+    protected abstract void store(@NonNull Tile tile, byte @NonNull [] data) throws IOException;
+
+    /**
+     * Get when a tile was last written.
+     *
+     * @param tile Tile to check
+     * @return last modified time in millis, or -1 if the tile does not exist
+     */
+    public abstract long lastModified(@NonNull Tile tile);
+
+    /**
+     * List all stored tiles for a renderer at a zoom level.
+     *
+     * @param zoom     Zoom level
+     * @param renderer Renderer key
+     * @return stored tiles
+     * @throws IOException if the tiles could not be listed
+     */
+    public abstract @NonNull Collection<@NonNull Tile> list(int zoom, @NonNull String renderer) throws IOException;
+
+    /**
+     * Persist any pending state and do housekeeping.
+     */
+    public void flush() {
+    }
+
+    /**
+     * Flush and release any open resources.
+     */
+    public void close() {
+    }
+
+    public record Tile(int zoom, @NonNull String renderer, int x, int z, @NonNull String extension) {
+        private static final Pattern PATTERN = Pattern.compile("^(-?\\d+)/([^/]+)/(-?\\d+)_(-?\\d+)\\.([^/]+)$");
+
+        /**
+         * Get the path of this tile relative to the world's tiles directory.
+         *
+         * @return relative path
+         */
+        public @NonNull String getPath() {
+            return String.format(TileImage.DIR_PATH, zoom(), renderer()) + String.format(TileImage.FILE_PATH, x(), z(), extension());
+        }
+
+        /**
+         * Parse a tile from a path relative to the world's tiles directory.
+         *
+         * @param path Relative path
+         * @return tile, or null if the path is not a tile
+         */
+        public static @Nullable Tile parse(@NonNull String path) {
+            Matcher matcher = PATTERN.matcher(path);
+            if (!matcher.matches()) {
+                return null;
+            }
+            try {
+                return new Tile(
+                        Integer.parseInt(matcher.group(1)),
+                        matcher.group(2),
+                        Integer.parseInt(matcher.group(3)),
+                        Integer.parseInt(matcher.group(4)),
+                        matcher.group(5)
+                );
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
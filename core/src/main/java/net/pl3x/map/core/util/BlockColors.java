@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.util;
+
+import net.pl3x.map.core.Pl3xMap;
+import net.pl3x.map.core.configuration.ColorsConfig;
+import net.pl3x.map.core.world.Block;
+import net.pl3x.map.core.world.BlockState;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Block colors compiled into flat arrays indexed by {@link Block#getIndex()}.
+ * <p>
+ * Compiled once the colors config and all blocks are loaded, so the render hot paths
+ * never have to look anything up by block key.
+ */
+public class BlockColors {
+    public static final byte NONE = 0;
+    public static final byte STATIC = 1;
+    public static final byte FOLIAGE = 2;
+    public static final byte GRASS = 3;
+    public static final byte WATER = 4;
+    public static final byte AGE = 5;
+    public static final byte POWER = 6;
+    public static final byte MOISTURE = 7;
+
+    private static volatile Table table = new Table(0);
+
+    /**
+     * Compile the color table for the given blocks.
+     *
+     * @param blocks All registered blocks
+     */
+    public static void compile(@NonNull Iterable<@NonNull Block> blocks) {
+        int size = 0;
+        for (Block block : blocks) {
+            size = Math.max(size, block.getIndex() + 1);
+        }
+        Table table = new Table(size);
+        for (Block block : blocks) {
+            int index = block.getIndex();
+            table.compiled[index] = true;
+            table.raw[index] = rawColor(block);
+            table.kinds[index] = kind(block);
+            table.states[index] = switch (table.kinds[index]) {
+                case AGE, MOISTURE -> states(block);
+                case POWER -> powers();
+                default -> null;
+            };
+        }
+        BlockColors.table = table;
+    }
+
+    /**
+     * Get the color of a block, preferring the colors config over the block's own color.
+     *
+     * @param block Block
+     * @return raw block color
+     */
+    public static int getRawColor(@NonNull Block block) {
+        Table table = BlockColors.table;
+        int index = block.getIndex();
+        return index < table.raw.length && table.compiled[index] ? table.raw[index] : rawColor(block);
+    }
+
+    /**
+     * Get how the color of a block is resolved.
+     *
+     * @param block Block
+     * @return one of the resolver kinds in this class
+     */
+    public static byte getKind(@NonNull Block block) {
+        Table table = BlockColors.table;
+        int index = block.getIndex();
+        return index < table.kinds.length && table.compiled[index] ? table.kinds[index] : kind(block);
+    }
+
+    /**
+     * Get the color of a block whose color depends on its state.
+     *
+     * @param blockstate Block state with an {@link #AGE}, {@link #POWER} or {@link #MOISTURE} resolver kind
+     * @return block state color
+     */
+    public static int getStateColor(@NonNull BlockState blockstate) {
+        Block block = blockstate.getBlock();
+        Table table = BlockColors.table;
+        int index = block.getIndex();
+        int[] states = index < table.states.length ? table.states[index] : null;
+        byte kind = getKind(block);
+        byte value = kind == MOISTURE ? blockstate.getMoisture() : kind == POWER ? blockstate.getPower() : blockstate.getAge();
+        if (states != null && (value & 0xFF) < states.length) {
+            return states[value & 0xFF];
+        }
+        return stateColor(block, value);
+    }
+
+    private static int rawColor(@NonNull Block block) {
+        int color = ColorsConfig.BLOCK_COLORS.getOrDefault(block.getKey(), -1);
+        return color < 0 ? block.color() : color;
+    }
+
+    private static byte kind(@NonNull Block block) {
+        if (block.color() <= 0) {
+            return NONE;
+        }
+        if (block.isFoliage()) {
+            return FOLIAGE;
+        }
+        if (block.isGrass()) {
+            return GRASS;
+        }
+        if (block.isWater()) {
+            return WATER;
+        }
+        return switch (block.getKey()) {
+            case "minecraft:melon_stem", "minecraft:pumpkin_stem", "minecraft:wheat", "minecraft:cocoa" -> AGE;
+            case "minecraft:redstone_wire" -> POWER;
+            case "minecraft:farmland" -> MOISTURE;
+            default -> STATIC;
+        };
+    }
+
+    // every possible byte value, so the lookup can never miss
+    private static int @NonNull [] states(@NonNull Block block) {
+        int[] states = new int[256];
+        for (int i = 0; i < 256; i++) {
+            states[i] = stateColor(block, (byte) i);
+        }
+        return states;
+    }
+
+    // only the valid power levels, anything else goes through the platform like before
+    private static int @NonNull [] powers() {
+        int[] powers = new int[16];
+        for (int i = 0; i < 16; i++) {
+            powers[i] = Pl3xMap.api().getColorForPower((byte) i);
+        }
+        return powers;
+    }
+
+    // value is the age, power or moisture depending on the block
+    private static int stateColor(@NonNull Block block, byte value) {
+        String key = block.getKey();
+        if (key.equals("minecraft:melon_stem") || key.equals("minecraft:pumpkin_stem")) {
+            return Colors.rgb(value << 5, 0xFF - (value << 3), value << 2);
+        }
+        if (key.equals("minecraft:wheat")) {
+            return Colors.lerpRGB(0x007C00, 0xDCBB65, (value + 1) / 8F);
+        }
+        if (key.equals("minecraft:redstone_wire")) {
+            return Pl3xMap.api().getColorForPower(value);
+        }
+        if (key.equals("minecraft:cocoa")) {
+            return switch (value) {
+                case 0 -> 0x6A682E;
+                case 1 -> 0x654721;
+                default -> 0x703715;
+            };
+        }
+        if (key.equals("minecraft:farmland")) {
+            return value >= 7 ? 0x512C0F : 0x8E6646;
+        }
+        return block.color();
+    }
+
+    private static class Table {
+        private final boolean[] compiled;
+        private final int[] raw;
+        private final byte[] kinds;
+        private final int[][] states;
+
+        private Table(int size) {
+            this.compiled = new boolean[size];
+            this.raw = new int[size];
+            this.kinds = new byte[size];
+            this.states = new int[size][];
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import net.pl3x.map.core.configuration.Config;
+import net.pl3x.map.core.log.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Bounded pool of the large scratch buffers used while rendering regions.
+ * <p>
+ * Buffers are keyed by size and always handed out zeroed. Released buffers are kept
+ * until the pool for that size is full, after which they are left for the garbage collector.
+ */
+public class BufferPool {
+    private static final int MAX_POOLED = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final Map<@NonNull Integer, @NonNull Queue<int @NonNull []>> INTS = new ConcurrentHashMap<>();
+    private static final Map<@NonNull Integer, @NonNull Queue<@NonNull ByteBuffer>> BYTES = new ConcurrentHashMap<>();
+
+    // only tracked in debug mode, holds where each outstanding buffer was acquired
+    private static final Map<@NonNull Object, @NonNull Throwable> LEASED = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private BufferPool() {
+    }
+
+    public static int @NonNull [] acquireInts(int size) {
+        int[] array = INTS.computeIfAbsent(size, k -> new ArrayBlockingQueue<>(MAX_POOLED)).poll();
+        if (array == null) {
+            array = new int[size];
+        } else {
+            Arrays.fill(array, 0);
+        }
+        lease(array);
+        return array;
+    }
+
+    public static void releaseInts(int @Nullable [] array) {
+        if (array == null || !unlease(array)) {
+            return;
+        }
+        INTS.computeIfAbsent(array.length, k -> new ArrayBlockingQueue<>(MAX_POOLED)).offer(array);
+    }
+
+    public static @NonNull ByteBuffer acquireBytes(int size) {
+        ByteBuffer buffer = BYTES.computeIfAbsent(size, k -> new ArrayBlockingQueue<>(MAX_POOLED)).poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(size);
+        } else {
+            buffer.clear();
+            Arrays.fill(buffer.array(), (byte) 0);
+        }
+        lease(buffer);
+        return buffer;
+    }
+
+    public static void releaseBytes(@Nullable ByteBuffer buffer) {
+        if (buffer == null || !unlease(buffer)) {
+            return;
+        }
+        BYTES.computeIfAbsent(buffer.capacity(), k -> new ArrayBlockingQueue<>(MAX_POOLED)).offer(buffer);
+    }
+
+    /**
+     * Report any buffers that were acquired but never released.
+     * <p>
+     * Only has an effect when debug mode is enabled.
+     */
+    public static void checkLeaks() {
+        if (!Config.DEBUG_MODE) {
+            return;
+        }
+        synchronized (LEASED) {
+            if (LEASED.isEmpty()) {
+                return;
+            }
+            Logger.warn("Found " + LEASED.size() + " leaked render buffers");
+            LEASED.values().forEach(trace -> Logger.warn("Leaked render buffer", trace));
+            LEASED.clear();
+        }
+    }
+
+    public static void clear() {
+        INTS.clear();
+        BYTES.clear();
+        LEASED.clear();
+    }
+
+    private static void lease(@NonNull Object buffer) {
+        if (Config.DEBUG_MODE) {
+            LEASED.put(buffer, new Throwable("Buffer acquired by " + Thread.currentThread().getName()));
+        }
+    }
+
+    private static boolean unlease(@NonNull Object buffer) {
+        if (!Config.DEBUG_MODE) {
+            return true;
+        }
+        if (LEASED.remove(buffer) == null) {
+            // never leased, or released twice. do not let it into the pool more than once
+            Logger.warn("Released render buffer that was not acquired from the pool");
+            return false;
+        }
+        return true;
+    }
+}
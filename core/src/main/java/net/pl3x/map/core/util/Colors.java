@@ -28,9 +28,8 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Path;
 import javax.imageio.ImageIO;
-import net.pl3x.map.core.Pl3xMap;
-import net.pl3x.map.core.configuration.ColorsConfig;
 import net.pl3x.map.core.world.Biome;
+import net.pl3x.map.core.world.BiomeBlend;
 import net.pl3x.map.core.world.Block;
 import net.pl3x.map.core.world.BlockState;
 import net.pl3x.map.core.world.Chunk;
@@ -39,22 +38,25 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 
 @SuppressWarnings("unused")
 public class Colors {
-    private static final int[] mapGrass;
-    private static final int[] mapFoliage;
-
-    static {
-        Path imagesDir = FileUtil.getWebDir().resolve("images");
-        BufferedImage imgGrass, imgFoliage;
-
-        try {
-            imgGrass = ImageIO.read(imagesDir.resolve("grass.png").toFile());
-            imgFoliage = ImageIO.read(imagesDir.resolve("foliage.png").toFile());
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to read color images", e);
-        }
+    // loaded on first use so the color math works without the web directory
+    private static class ColorMaps {
+        private static final int[] mapGrass;
+        private static final int[] mapFoliage;
+
+        static {
+            Path imagesDir = FileUtil.getWebDir().resolve("images");
+            BufferedImage imgGrass, imgFoliage;
+
+            try {
+                imgGrass = ImageIO.read(imagesDir.resolve("grass.png").toFile());
+                imgFoliage = ImageIO.read(imagesDir.resolve("foliage.png").toFile());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read color images", e);
+            }
 
-        mapGrass = getColorsFromImage(imgGrass);
-        mapFoliage = getColorsFromImage(imgFoliage);
+            mapGrass = getColorsFromImage(imgGrass);
+            mapFoliage = getColorsFromImage(imgFoliage);
+        }
     }
 
     private static int[] getColorsFromImage(@NonNull BufferedImage image) {
@@ -69,11 +71,11 @@ public class Colors {
     }
 
     public static int getDefaultGrassColor(double temperature, double humidity) {
-        return getDefaultColor(temperature, humidity, mapGrass);
+        return getDefaultColor(temperature, humidity, ColorMaps.mapGrass);
     }
 
     public static int getDefaultFoliageColor(double temperature, double humidity) {
-        return getDefaultColor(temperature, humidity, mapFoliage);
+        return getDefaultColor(temperature, humidity, ColorMaps.mapFoliage);
     }
 
     private static int getDefaultColor(double temperature, double humidity, int[] map) {
@@ -111,18 +113,7 @@ public class Colors {
     }
 
     public static int lerpHSB(int color0, int color1, float delta, boolean useShortestAngle) {
-        float[] hsb0 = Color.RGBtoHSB(red(color0), green(color0), blue(color0), null);
-        float[] hsb1 = Color.RGBtoHSB(red(color1), green(color1), blue(color1), null);
-        return setAlpha(
-                (int) Mathf.lerp(alpha(color0), alpha(color1), delta),
-                Color.HSBtoRGB(
-                        useShortestAngle ?
-                                lerpShortestAngle(hsb0[0], hsb1[0], delta) :
-                                Mathf.lerp(hsb0[0], hsb1[0], delta),
-                        Mathf.lerp(hsb0[1], hsb1[1], delta),
-                        Mathf.lerp(hsb0[2], hsb1[2], delta)
-                )
-        );
+        return Compositor.lerpHSB(color0, color1, delta, useShortestAngle);
     }
 
     public static int inverseLerpRGB(int color0, int color1, float delta) {
@@ -183,13 +174,7 @@ public class Colors {
      * @see <a href="https://en.wikipedia.org/wiki/Alpha_compositing#Alpha_blending">Alpha Blending</a>
      */
     public static int blend(int color0, int color1) {
-        double a0 = (double) alpha(color0) / 0xFF;
-        double a1 = (double) alpha(color1) / 0xFF;
-        double a = a0 + a1 * (1 - a0);
-        double r = (red(color0) * a0 + red(color1) * a1 * (1 - a0)) / a;
-        double g = (green(color0) * a0 + green(color1) * a1 * (1 - a0)) / a;
-        double b = (blue(color0) * a0 + blue(color1) * a1 * (1 - a0)) / a;
-        return argb((int) a * 0xFF, (int) r, (int) g, (int) b);
+        return Compositor.blend(color0, color1);
     }
 
     public static int mix(int color0, int color1) {
@@ -200,14 +185,26 @@ public class Colors {
     }
 
     public static int getFoliageColor(@NonNull Region region, @NonNull Biome biome, int color, int x, int z) {
+        BiomeBlend blend = region.getBiomeBlend();
+        if (blend != null && blend.contains(x, z)) {
+            return mix(blend.getFoliage(x, z), color);
+        }
         return sampleNeighbors(region, biome, x, z, (biome2, x2, z2) -> mix(biome2.foliage(), color));
     }
 
     public static int getGrassColor(@NonNull Region region, @NonNull Biome biome, int color, int x, int z) {
+        BiomeBlend blend = region.getBiomeBlend();
+        if (blend != null && blend.contains(x, z)) {
+            return mix(blend.getGrass(x, z), color);
+        }
         return sampleNeighbors(region, biome, x, z, (biome2, x2, z2) -> mix(biome2.grass(x2, z2), color));
     }
 
     public static int getWaterColor(@NonNull Region region, @NonNull Biome biome, int x, int z) {
+        BiomeBlend blend = region.getBiomeBlend();
+        if (blend != null && blend.contains(x, z)) {
+            return blend.getWater(x, z);
+        }
         return sampleNeighbors(region, biome, x, z, (biome2, x2, z2) -> biome2.water());
     }
 
@@ -243,46 +240,19 @@ public class Colors {
     }
 
     public static int getRawBlockColor(@NonNull Block block) {
-        int color = ColorsConfig.BLOCK_COLORS.getOrDefault(block.getKey(), -1);
-        return color < 0 ? block.color() : color;
+        return BlockColors.getRawColor(block);
     }
 
     public static int fixBlockColor(@NonNull Region region, @NonNull Biome biome, @NonNull BlockState blockstate, int x, int z) {
-        int color = blockstate.getBlock().color();
-        if (color <= 0) {
-            return 0;
-        }
-        if (blockstate.getBlock().isFoliage()) {
-            return getFoliageColor(region, biome, color, x, z);
-        }
-        if (blockstate.getBlock().isGrass()) {
-            return getGrassColor(region, biome, color, x, z);
-        }
-        if (blockstate.getBlock().isWater()) {
-            return getWaterColor(region, biome, x, z);
-        }
-        String key = blockstate.getBlock().getKey();
-        if (key.equals("minecraft:melon_stem") || key.equals("minecraft:pumpkin_stem")) {
-            int age = blockstate.getAge();
-            return rgb(age << 5, 0xFF - (age << 3), age << 2);
-        }
-        if (key.equals("minecraft:wheat")) {
-            return lerpRGB(0x007C00, 0xDCBB65, (blockstate.getAge() + 1) / 8F);
-        }
-        if (key.equals("minecraft:redstone_wire")) {
-            return Pl3xMap.api().getColorForPower(blockstate.getPower());
-        }
-        if (key.equals("minecraft:cocoa")) {
-            return switch (blockstate.getAge()) {
-                case 0 -> 0x6A682E;
-                case 1 -> 0x654721;
-                default -> 0x703715;
-            };
-        }
-        if (key.equals("minecraft:farmland")) {
-            return blockstate.getMoisture() >= 7 ? 0x512C0F : 0x8E6646;
-        }
-        return blockstate.getBlock().color();
+        Block block = blockstate.getBlock();
+        return switch (BlockColors.getKind(block)) {
+            case BlockColors.NONE -> 0;
+            case BlockColors.FOLIAGE -> getFoliageColor(region, biome, block.color(), x, z);
+            case BlockColors.GRASS -> getGrassColor(region, biome, block.color(), x, z);
+            case BlockColors.WATER -> getWaterColor(region, biome, x, z);
+            case BlockColors.AGE, BlockColors.POWER, BlockColors.MOISTURE -> BlockColors.getStateColor(blockstate);
+            default -> block.color();
+        };
     }
 
     public static int rgb(int red, int green, int blue) {
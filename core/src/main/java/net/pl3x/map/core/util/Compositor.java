@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.util;
+
+import java.awt.Color;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Integer color compositing.
+ * <p>
+ * Results are bit for bit the same as the original floating point math in {@link Colors},
+ * including its truncation, so tiles do not change when switching over.
+ */
+public class Compositor {
+    // blended channel when the top color is fully transparent, indexed by bottom alpha and bottom channel
+    private static final byte[] UNDER = new byte[256 * 256];
+
+    static {
+        for (int a1 = 1; a1 < 256; a1++) {
+            for (int v = 0; v < 256; v++) {
+                UNDER[a1 << 8 | v] = (byte) channel(0, 0, v, a1);
+            }
+        }
+    }
+
+    /**
+     * Blends one color over another.
+     *
+     * @param color0 color to blend over with
+     * @param color1 color to be blended over
+     * @return resulting blended color
+     * @see Colors#blend(int, int)
+     */
+    public static int blend(int color0, int color1) {
+        int a0 = color0 >>> 24;
+        if (a0 == 0xFF) {
+            return color0;
+        }
+        int a1 = color1 >>> 24;
+        // the original only ever produces fully opaque or fully transparent results
+        int alpha = a1 == 0xFF ? 0xFF000000 : 0;
+        if (a0 == 0) {
+            if (a1 == 0) {
+                return 0;
+            }
+            int row = a1 << 8;
+            return alpha
+                    | (UNDER[row | (color1 >> 16 & 0xFF)] & 0xFF) << 16
+                    | (UNDER[row | (color1 >> 8 & 0xFF)] & 0xFF) << 8
+                    | (UNDER[row | (color1 & 0xFF)] & 0xFF);
+        }
+        // weights scaled up by 255 * 255 to keep everything in integers
+        int w0 = a0 * 0xFF;
+        int w1 = a1 * (0xFF - a0);
+        int den = w0 + w1;
+        return alpha
+                | channel(color0 >> 16 & 0xFF, color1 >> 16 & 0xFF, a0, a1, w0, w1, den) << 16
+                | channel(color0 >> 8 & 0xFF, color1 >> 8 & 0xFF, a0, a1, w0, w1, den) << 8
+                | channel(color0 & 0xFF, color1 & 0xFF, a0, a1, w0, w1, den);
+    }
+
+    private static int channel(int v0, int v1, int a0, int a1, int w0, int w1, int den) {
+        int num = v0 * w0 + v1 * w1;
+        int q = num / den;
+        // the floating point quotient can land just below a whole number, only those need the slow path
+        return q * den == num ? channel(v0, a0, v1, a1) : q;
+    }
+
+    private static int channel(int v0, int a0, int v1, int a1) {
+        double d0 = (double) a0 / 0xFF;
+        double d1 = (double) a1 / 0xFF;
+        double a = d0 + d1 * (1 - d0);
+        return (int) ((v0 * d0 + v1 * d1 * (1 - d0)) / a);
+    }
+
+    /**
+     * Blend one color over a row of colors, in place.
+     *
+     * @param color  color to blend over with
+     * @param colors colors to be blended over
+     * @param offset offset into colors
+     * @param length number of colors
+     */
+    public static void blendRow(int color, int @NonNull [] colors, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            colors[i] = blend(color, colors[i]);
+        }
+    }
+
+    /**
+     * Lerp between two colors in HSB space without allocating.
+     *
+     * @see Colors#lerpHSB(int, int, float, boolean)
+     */
+    public static int lerpHSB(int color0, int color1, float delta, boolean useShortestAngle) {
+        int r0 = color0 >> 16 & 0xFF, g0 = color0 >> 8 & 0xFF, b0 = color0 & 0xFF;
+        int r1 = color1 >> 16 & 0xFF, g1 = color1 >> 8 & 0xFF, b1 = color1 & 0xFF;
+        float hue0 = hue(r0, g0, b0), hue1 = hue(r1, g1, b1);
+        return Colors.setAlpha(
+                (int) Mathf.lerp(color0 >> 24 & 0xFF, color1 >> 24 & 0xFF, delta),
+                Color.HSBtoRGB(
+                        useShortestAngle ?
+                                Colors.lerpShortestAngle(hue0, hue1, delta) :
+                                Mathf.lerp(hue0, hue1, delta),
+                        Mathf.lerp(saturation(r0, g0, b0), saturation(r1, g1, b1), delta),
+                        Mathf.lerp(brightness(r0, g0, b0), brightness(r1, g1, b1), delta)
+                )
+        );
+    }
+
+    // hue, saturation and brightness below follow Color.RGBtoHSB exactly
+
+    private static float hue(int r, int g, int b) {
+        int cmax = Math.max(Math.max(r, g), b);
+        int cmin = Math.min(Math.min(r, g), b);
+        if (cmax == 0 || cmax == cmin) {
+            return 0;
+        }
+        float redc = ((float) (cmax - r)) / ((float) (cmax - cmin));
+        float greenc = ((float) (cmax - g)) / ((float) (cmax - cmin));
+        float bluec = ((float) (cmax - b)) / ((float) (cmax - cmin));
+        float hue;
+        if (r == cmax) {
+            hue = bluec - greenc;
+        } else if (g == cmax) {
+            hue = 2.0F + redc - bluec;
+        } else {
+            hue = 4.0F + greenc - redc;
+        }
+        hue = hue / 6.0F;
+        return hue < 0 ? hue + 1.0F : hue;
+    }
+
+    private static float saturation(int r, int g, int b) {
+        int cmax = Math.max(Math.max(r, g), b);
+        int cmin = Math.min(Math.min(r, g), b);
+        return cmax == 0 ? 0 : ((float) (cmax - cmin)) / ((float) cmax);
+    }
+
+    private static float brightness(int r, int g, int b) {
+        return ((float) Math.max(Math.max(r, g), b)) / 255.0F;
+    }
+}
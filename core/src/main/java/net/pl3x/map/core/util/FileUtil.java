@@ -25,23 +25,38 @@ package net.pl3x.map.core.util;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Stream;
@@ -56,6 +71,10 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class FileUtil {
+    // target file -> temp file holding its newest, not yet published, contents
+    private static final Map<@NonNull Path, @NonNull Path> PENDING_SYNC = new ConcurrentHashMap<>();
+    private static final AtomicBoolean SYNC_QUEUED = new AtomicBoolean();
+
     public @NonNull
     static Path getTilesDir() {
         return getWebDir().resolve("tiles");
@@ -133,35 +152,211 @@ public class FileUtil {
     }
 
     public static void write(@NonNull String str, @NonNull Path file) {
-        try (
-                OutputStream fileOut = Files.newOutputStream(mkDirs(file));
-                Writer writer = new OutputStreamWriter(fileOut)
-        ) {
-            writer.write(str);
-            writer.flush();
+        try {
+            atomicWrite(str.getBytes(StandardCharsets.UTF_8), file);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     public static void saveGzip(@NonNull String json, @NonNull Path file) throws IOException {
-        try (
-                OutputStream fileOut = Files.newOutputStream(mkDirs(file));
-                GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut);
-                Writer writer = new OutputStreamWriter(gzipOut)
-        ) {
-            writer.write(json);
-            writer.flush();
-        }
+        saveGzip(json.getBytes(StandardCharsets.UTF_8), file);
     }
 
     public static void saveGzip(byte[] bytes, @NonNull Path file) throws IOException {
-        try (
-                OutputStream fileOut = Files.newOutputStream(mkDirs(file));
-                GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut)
-        ) {
-            gzipOut.write(bytes);
-            gzipOut.flush();
+        atomicWrite(gzip(bytes), file);
+    }
+
+    /**
+     * Write bytes to a sibling temp file and move it over the target in one step.
+     * <p>
+     * Readers (such as the web server) only ever see the old or the new file, never
+     * a partially written one, and a crash mid-write leaves the old file in place.
+     * <p>
+     * With the batched fsync policy the temp file is not moved until {@link #syncPending()}
+     * has forced it to disk. Until then {@link #readAllBytes(Path)} and {@link #getLastModified(Path)}
+     * already see the new contents.
+     *
+     * @param bytes Bytes to write
+     * @param file  Target file
+     * @throws IOException if the file could not be written
+     */
+    public static void atomicWrite(byte @NonNull [] bytes, @NonNull Path file) throws IOException {
+        Path dir = file.getParent();
+        Files.createDirectories(dir);
+        String fsync = Config.FSYNC.toLowerCase(Locale.ROOT);
+        // not Files.createTempFile, that would leave the published file readable only by us
+        Path tmp = dir.resolve("." + file.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync.equals("always")) {
+                    channel.force(true);
+                }
+            }
+            if (fsync.equals("batched")) {
+                // published by syncPending once it is on disk
+                Path superseded = PENDING_SYNC.put(file, tmp);
+                if (superseded != null) {
+                    Files.deleteIfExists(superseded);
+                }
+                return;
+            }
+            move(tmp, file);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (fsync.equals("always")) {
+            sync(dir);
+        }
+    }
+
+    /**
+     * Force all files written since the last call to disk and publish them, when using the batched fsync policy.
+     * <p>
+     * Each file only replaces its target after its own data is on disk, so a crash leaves either the
+     * old or the new file under the real name. The directories are synced last to persist the moves.
+     */
+    public static synchronized void syncPending() {
+        if (PENDING_SYNC.isEmpty()) {
+            return;
+        }
+        Set<Path> dirs = new HashSet<>();
+        for (Map.Entry<Path, Path> pending : List.copyOf(PENDING_SYNC.entrySet())) {
+            Path file = pending.getKey();
+            Path tmp = pending.getValue();
+            try {
+                if (PENDING_SYNC.get(file) != tmp) {
+                    // a newer write replaced this one before it was published
+                    Files.deleteIfExists(tmp);
+                    continue;
+                }
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                move(tmp, file);
+                dirs.add(file.getParent());
+            } catch (NoSuchFileException ignore) {
+                // replaced by a newer write while we were publishing it
+            } catch (IOException e) {
+                Logger.warn("Could not publish " + file, e);
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignore) {
+                }
+            } finally {
+                PENDING_SYNC.remove(file, tmp);
+            }
+        }
+        dirs.forEach(FileUtil::sync);
+    }
+
+    /**
+     * Run {@link #syncPending()} on the given executor if anything is waiting to be published
+     * and no earlier sync is still queued or running.
+     *
+     * @param executor Executor to sync on
+     */
+    public static void syncPendingAsync(@NonNull Executor executor) {
+        if (PENDING_SYNC.isEmpty() || !SYNC_QUEUED.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    syncPending();
+                } finally {
+                    SYNC_QUEUED.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            SYNC_QUEUED.set(false);
+        }
+    }
+
+    /**
+     * Delete temp files left behind by {@link #atomicWrite(byte[], Path)} when the server stopped mid-write.
+     * <p>
+     * Only call this before anything is written, a pending write's temp file looks the same.
+     *
+     * @param dir Directory to clean up
+     */
+    public static void deleteTempFiles(@NonNull Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(".") && name.endsWith(".tmp") && Files.isRegularFile(path);
+            }).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    Logger.warn("Could not delete leftover temp file " + path, e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            Logger.warn("Could not clean up temp files in " + dir, e);
+        }
+    }
+
+    /**
+     * Read a file written with {@link #atomicWrite(byte[], Path)}, including contents still waiting on {@link #syncPending()}.
+     *
+     * @param file File to read
+     * @return file contents
+     * @throws IOException if the file could not be read
+     */
+    public static byte @NonNull [] readAllBytes(@NonNull Path file) throws IOException {
+        Path tmp = PENDING_SYNC.get(file);
+        if (tmp != null) {
+            try {
+                return Files.readAllBytes(tmp);
+            } catch (NoSuchFileException ignore) {
+                // published or replaced while we were looking at it
+                return readAllBytes(file);
+            }
+        }
+        return Files.readAllBytes(file);
+    }
+
+    /**
+     * Get when a file written with {@link #atomicWrite(byte[], Path)} was last written, including writes still waiting on {@link #syncPending()}.
+     *
+     * @param file File to check
+     * @return last modified time in millis
+     * @throws IOException if the file does not exist
+     */
+    public static long getLastModified(@NonNull Path file) throws IOException {
+        Path tmp = PENDING_SYNC.get(file);
+        if (tmp != null) {
+            try {
+                return Files.getLastModifiedTime(tmp).toMillis();
+            } catch (NoSuchFileException ignore) {
+                return getLastModified(file);
+            }
+        }
+        return Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private static void move(@NonNull Path tmp, @NonNull Path file) throws IOException {
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void sync(@NonNull Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignore) {
+            // directories cannot be opened on every platform and files may already be replaced again
         }
     }
 
@@ -177,6 +372,20 @@ public class FileUtil {
         }
     }
 
+    public static byte @NonNull [] gzip(byte @NonNull [] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length >> 2);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    public static byte @NonNull [] gunzip(byte @NonNull [] bytes) throws IOException {
+        try (GZIPInputStream gzipIn = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return gzipIn.readAllBytes();
+        }
+    }
+
     public static @NonNull Path mkDirs(@NonNull Path file) throws IOException {
         if (!Files.exists(file)) {
             Files.createDirectories(file.getParent());
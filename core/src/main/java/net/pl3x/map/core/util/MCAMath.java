@@ -24,6 +24,8 @@
  */
 package net.pl3x.map.core.util;
 
+import java.util.Arrays;
+
 public class MCAMath {
     /**
      * Having a long array where each long contains as many values as fit in it without overflowing, returning the "valueIndex"-th value when each value has "bitsPerValue" bits.
@@ -57,6 +59,48 @@ public class MCAMath {
         return value & (0xFFFFFFFFFFFFFFFFL >>> -bitsPerValue);
     }
 
+    /**
+     * Unpack the first "count" values of a long array where each long contains as many values as fit in it without overflowing (1.16+).
+     * <p>
+     * Values past the end of the data are unpacked as 0. Only supports up to 16 bits per value.
+     */
+    public static void unpackLongArray(long[] data, int bitsPerValue, short[] out, int count) {
+        int valuesPerLong = 64 / bitsPerValue;
+        long mask = 0xFFFFFFFFFFFFFFFFL >>> -bitsPerValue;
+        int i = 0;
+        for (int longIndex = 0; longIndex < data.length && i < count; longIndex++) {
+            long value = data[longIndex];
+            int end = Math.min(i + valuesPerLong, count);
+            for (; i < end; i++) {
+                out[i] = (short) (value & mask);
+                value >>>= bitsPerValue;
+            }
+        }
+        Arrays.fill(out, i, count, (short) 0);
+    }
+
+    /**
+     * Unpack the first "count" values of a long array treated as a continuous stream of bits (before 1.16).
+     * <p>
+     * Values past the end of the data are unpacked as 0. Only supports up to 16 bits per value.
+     */
+    public static void unpackLongStream(long[] data, int bitsPerValue, short[] out, int count) {
+        long mask = 0xFFFFFFFFFFFFFFFFL >>> -bitsPerValue;
+        int total = Math.min(count, (int) (((long) data.length << 6) / bitsPerValue));
+        int bitIndex = 0;
+        for (int i = 0; i < total; i++, bitIndex += bitsPerValue) {
+            int longIndex = bitIndex >> 6;
+            int bitOffset = bitIndex & 0x3F;
+            long value = data[longIndex] >>> bitOffset;
+            if (bitOffset + bitsPerValue > 64) {
+                // value spans into the next long
+                value |= data[longIndex + 1] << -bitOffset;
+            }
+            out[i] = (short) (value & mask);
+        }
+        Arrays.fill(out, total, count, (short) 0);
+    }
+
     /**
      * Extracts the 4 bits of the left (largeHalf = <code>true</code>) or the right (largeHalf = <code>false</code>) side of the byte stored in <code>value</code>.<br>
      * The value is treated as an unsigned byte.
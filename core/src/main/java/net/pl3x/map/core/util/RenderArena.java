@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import net.pl3x.map.core.configuration.Config;
+import net.pl3x.map.core.log.Logger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Scratch memory for everything a single region render needs.
+ * <p>
+ * In off-heap mode buffers are direct memory, handed back to a shared pool as soon as they are
+ * released or the arena is closed, so the next region reuses them instead of allocating more.
+ * The pool holds at most {@link #MAX_POOLED_BYTES} in total. Buffers released while it is full
+ * are dropped and counted, their memory is then freed by the garbage collector like any other
+ * direct buffer. Otherwise buffers are pooled heap arrays from {@link BufferPool}.
+ * <p>
+ * Buffers are always handed out zeroed and must not be used after they are released.
+ */
+public class RenderArena implements AutoCloseable {
+    /**
+     * Arena for heap buffers that are released one by one, it holds on to nothing.
+     */
+    public static final RenderArena HEAP = new RenderArena(false);
+
+    /**
+     * Most direct memory kept around for reuse, an eighth of the max heap size.
+     * The default direct memory limit is the max heap size itself, so the pool
+     * leaves most of it to buffers that are in use.
+     */
+    public static final long MAX_POOLED_BYTES = Runtime.getRuntime().maxMemory() / 8;
+
+    private static final Map<@NonNull Integer, @NonNull Queue<@NonNull ByteBuffer>> DIRECT = new ConcurrentHashMap<>();
+    private static final AtomicLong POOLED_BYTES = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final byte[] ZEROS = new byte[0x10000];
+
+    private final boolean offHeap;
+    private final Map<@NonNull IntBuffer, @Nullable ByteBuffer> leased = new IdentityHashMap<>();
+
+    private RenderArena(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Create a new arena for a region render, off-heap if enabled in the config.
+     *
+     * @return new arena
+     */
+    public static @NonNull RenderArena create() {
+        return new RenderArena(Config.RENDER_OFF_HEAP);
+    }
+
+    public boolean isOffHeap() {
+        return this.offHeap;
+    }
+
+    /**
+     * Get a zeroed int buffer.
+     *
+     * @param size Number of ints
+     * @return zeroed buffer
+     */
+    public @NonNull IntBuffer allocateInts(int size) {
+        if (!this.offHeap) {
+            IntBuffer buffer = IntBuffer.wrap(BufferPool.acquireInts(size));
+            if (this != HEAP) {
+                synchronized (this.leased) {
+                    this.leased.put(buffer, null);
+                }
+            }
+            return buffer;
+        }
+        Queue<ByteBuffer> pool = DIRECT.get(size);
+        ByteBuffer bytes = pool == null ? null : pool.poll();
+        if (bytes == null) {
+            bytes = ByteBuffer.allocateDirect(size << 2).order(ByteOrder.nativeOrder());
+        } else {
+            POOLED_BYTES.addAndGet(-bytes.capacity());
+            zero(bytes);
+        }
+        IntBuffer buffer = bytes.asIntBuffer();
+        synchronized (this.leased) {
+            this.leased.put(buffer, bytes);
+        }
+        return buffer;
+    }
+
+    /**
+     * Hand a buffer back before the arena is closed.
+     *
+     * @param buffer Buffer from {@link #allocateInts(int)}
+     */
+    public void release(@Nullable IntBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (this == HEAP) {
+            BufferPool.releaseInts(buffer.array());
+            return;
+        }
+        ByteBuffer bytes;
+        synchronized (this.leased) {
+            if (!this.leased.containsKey(buffer)) {
+                return; // released twice
+            }
+            bytes = this.leased.remove(buffer);
+        }
+        free(buffer, bytes);
+    }
+
+    /**
+     * Hand back every buffer still in use.
+     */
+    @Override
+    public void close() {
+        List<Map.Entry<IntBuffer, ByteBuffer>> entries;
+        synchronized (this.leased) {
+            entries = new ArrayList<>(this.leased.entrySet());
+            this.leased.clear();
+        }
+        entries.forEach(entry -> free(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Get how much direct memory is sitting in the pool.
+     *
+     * @return pooled bytes
+     */
+    public static long getPooledBytes() {
+        return POOLED_BYTES.get();
+    }
+
+    /**
+     * Get how many released direct buffers did not fit in the pool and were left to the garbage collector.
+     *
+     * @return dropped buffers
+     */
+    public static long getDroppedBuffers() {
+        return DROPPED.get();
+    }
+
+    /**
+     * Empty the direct memory pool.
+     */
+    public static void clear() {
+        DIRECT.values().forEach(pool -> {
+            ByteBuffer bytes;
+            while ((bytes = pool.poll()) != null) {
+                POOLED_BYTES.addAndGet(-bytes.capacity());
+            }
+        });
+        if (DROPPED.get() > 0) {
+            Logger.debug("Render arena dropped " + DROPPED.get() + " direct buffers that did not fit in its pool");
+        }
+    }
+
+    private static void free(@NonNull IntBuffer buffer, @Nullable ByteBuffer bytes) {
+        if (bytes == null) {
+            BufferPool.releaseInts(buffer.array());
+            return;
+        }
+        int capacity = bytes.capacity();
+        if (POOLED_BYTES.addAndGet(capacity) > MAX_POOLED_BYTES) {
+            // pool is full, let the garbage collector have this one
+            POOLED_BYTES.addAndGet(-capacity);
+            if (DROPPED.incrementAndGet() == 1) {
+                Logger.debug("Render arena pool is full (" + (MAX_POOLED_BYTES >> 20) + " MiB), dropping released direct buffers");
+            }
+            return;
+        }
+        DIRECT.computeIfAbsent(buffer.capacity(), k -> new ConcurrentLinkedQueue<>()).offer(bytes);
+    }
+
+    private static void zero(@NonNull ByteBuffer bytes) {
+        bytes.clear();
+        while (bytes.hasRemaining()) {
+            bytes.put(ZEROS, 0, Math.min(ZEROS.length, bytes.remaining()));
+        }
+        bytes.clear();
+    }
+}
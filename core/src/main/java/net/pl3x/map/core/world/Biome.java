@@ -24,18 +24,21 @@
 package net.pl3x.map.core.world;
 
 import java.util.Objects;
+import java.util.function.IntUnaryOperator;
 import net.pl3x.map.core.Keyed;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public final class Biome extends Keyed {
-    public static final Biome DEFAULT = new Biome(0, "minecraft:default", 0x000070, 0x73A74E, 0x8EB971, 0x3F76E4, (x, z, def) -> def);
+    public static final Biome DEFAULT = new Biome(0, "minecraft:default", 0x000070, 0x73A74E, 0x8EB971, 0x3F76E4, GrassModifier.fixed(def -> def));
     private final int index;
     private final int color;
     private final int foliage;
     private final int grass;
     private final int water;
     private final @NonNull GrassModifier grassModifier;
+    private final boolean positionalGrass;
+    private final int fixedGrass;
 
     public Biome(int index, @NonNull String key, int color, int foliage, int grass, int water, @NonNull GrassModifier grassModifier) {
         super(key);
@@ -45,10 +48,12 @@ public final class Biome extends Keyed {
         this.grass = grass;
         this.water = water;
         this.grassModifier = grassModifier;
+        this.positionalGrass = grassModifier.isPositional();
+        this.fixedGrass = this.positionalGrass ? grass : grassModifier.modify(0, 0, grass);
     }
 
     public int grass(int x, int z) {
-        return grassModifier().modify(x, z, grass());
+        return this.positionalGrass ? grassModifier().modify(x, z, grass()) : this.fixedGrass;
     }
 
     public int index() {
@@ -110,5 +115,30 @@ public final class Biome extends Keyed {
     @FunctionalInterface
     public interface GrassModifier {
         int modify(int x, int z, int def);
+
+        /**
+         * Whether the result depends on the position.
+         * <p>
+         * Biomes precompute the grass color for modifiers that do not.
+         *
+         * @return true if the result depends on the position
+         */
+        default boolean isPositional() {
+            return true;
+        }
+
+        static @NonNull GrassModifier fixed(@NonNull IntUnaryOperator modifier) {
+            return new GrassModifier() {
+                @Override
+                public int modify(int x, int z, int def) {
+                    return modifier.applyAsInt(def);
+                }
+
+                @Override
+                public boolean isPositional() {
+                    return false;
+                }
+            };
+        }
     }
 }
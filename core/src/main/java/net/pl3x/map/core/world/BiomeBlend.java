@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.world;
+
+import net.pl3x.map.core.util.BufferPool;
+import net.pl3x.map.core.util.Colors;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Blended grass, foliage and water colors for every column of a region.
+ * <p>
+ * The biome colors of the region (plus a halo of the blend radius around it) are sampled once,
+ * then box blurred with sliding window sums, so blending costs the same for any radius.
+ * The window matches what {@link Colors} samples, columns x - radius until x + radius (exclusive).
+ */
+public class BiomeBlend {
+    private static final int GRASS = 0;
+    private static final int FOLIAGE = 1;
+    private static final int WATER = 2;
+
+    private final int minX;
+    private final int minZ;
+
+    private int[][] blended = new int[3][];
+
+    public BiomeBlend(@NonNull Region region, int radius) {
+        this.minX = region.getX() << 9;
+        this.minZ = region.getZ() << 9;
+
+        int size = 512 + (radius << 1) - 1;
+        int[][] samples = new int[3][];
+        for (int kind = 0; kind < 3; kind++) {
+            samples[kind] = BufferPool.acquireInts(size * size);
+        }
+        sample(region, radius, size, samples);
+
+        int[][] sums = new int[4][];
+        for (int i = 0; i < 4; i++) {
+            sums[i] = BufferPool.acquireInts(size << 9);
+        }
+        for (int kind = 0; kind < 3; kind++) {
+            this.blended[kind] = BufferPool.acquireInts(512 << 9);
+            blur(samples[kind], size, radius, sums, this.blended[kind]);
+            BufferPool.releaseInts(samples[kind]);
+        }
+        for (int[] sum : sums) {
+            BufferPool.releaseInts(sum);
+        }
+    }
+
+    public boolean contains(int x, int z) {
+        return this.blended[0] != null && (x >> 9) == (this.minX >> 9) && (z >> 9) == (this.minZ >> 9);
+    }
+
+    public int getGrass(int x, int z) {
+        return this.blended[GRASS][index(x, z)];
+    }
+
+    public int getFoliage(int x, int z) {
+        return this.blended[FOLIAGE][index(x, z)];
+    }
+
+    public int getWater(int x, int z) {
+        return this.blended[WATER][index(x, z)];
+    }
+
+    public void release() {
+        for (int kind = 0; kind < 3; kind++) {
+            BufferPool.releaseInts(this.blended[kind]);
+            this.blended[kind] = null;
+        }
+    }
+
+    private static int index(int x, int z) {
+        return ((z & 511) << 9) | (x & 511);
+    }
+
+    // colors of every column, -1 where there is nothing to sample (the same columns Colors skips)
+    private void sample(@NonNull Region region, int radius, int size, int @NonNull [] @NonNull [] samples) {
+        World world = region.getWorld();
+        int originX = this.minX - radius;
+        int originZ = this.minZ - radius;
+        for (int gz = 0; gz < size; gz++) {
+            int z = originZ + gz;
+            Chunk chunk = null;
+            for (int gx = 0; gx < size; gx++) {
+                int x = originX + gx;
+                if (chunk == null || (x & 15) == 0) {
+                    chunk = world.getChunk(region, x >> 4, z >> 4);
+                }
+                int i = gz * size + gx;
+                Chunk.BlockData data = chunk.getData(x, z);
+                if (data == null) {
+                    samples[GRASS][i] = samples[FOLIAGE][i] = samples[WATER][i] = -1;
+                    continue;
+                }
+                Biome biome = data.getBiome(region, x, z);
+                samples[GRASS][i] = valid(biome.grass(x, z));
+                samples[FOLIAGE][i] = valid(biome.foliage());
+                samples[WATER][i] = valid(biome.water());
+            }
+        }
+    }
+
+    private static int valid(int color) {
+        return color > 0 ? color & 0xFFFFFF : -1;
+    }
+
+    private static void blur(int @NonNull [] samples, int size, int radius, int @NonNull [] @NonNull [] sums, int @NonNull [] out) {
+        int window = radius << 1;
+        int[] red = sums[0], green = sums[1], blue = sums[2], count = sums[3];
+
+        // horizontal window sums for every sampled row
+        for (int gz = 0; gz < size; gz++) {
+            int row = gz * size;
+            int r = 0, g = 0, b = 0, n = 0;
+            for (int gx = 0; gx < size; gx++) {
+                int color = samples[row + gx];
+                if (color >= 0) {
+                    r += color >> 16;
+                    g += (color >> 8) & 0xFF;
+                    b += color & 0xFF;
+                    n++;
+                }
+                int x = gx - window + 1;
+                if (x < 0) {
+                    continue;
+                }
+                int o = (gz << 9) + x;
+                red[o] = r;
+                green[o] = g;
+                blue[o] = b;
+                count[o] = n;
+                int old = samples[row + x];
+                if (old >= 0) {
+                    r -= old >> 16;
+                    g -= (old >> 8) & 0xFF;
+                    b -= old & 0xFF;
+                    n--;
+                }
+            }
+        }
+
+        // vertical window sums of those
+        for (int x = 0; x < 512; x++) {
+            int r = 0, g = 0, b = 0, n = 0;
+            for (int gz = 0; gz < size; gz++) {
+                int o = (gz << 9) + x;
+                r += red[o];
+                g += green[o];
+                b += blue[o];
+                n += count[o];
+                int z = gz - window + 1;
+                if (z < 0) {
+                    continue;
+                }
+                // the center column always counts, even when it has no color
+                int c = n + (samples[(z + radius) * size + x + radius] < 0 ? 1 : 0);
+                out[(z << 9) + x] = Colors.rgb(r / c, g / c, b / c);
+                int top = (z << 9) + x;
+                r -= red[top];
+                g -= green[top];
+                b -= blue[top];
+                n -= count[top];
+            }
+        }
+    }
+}
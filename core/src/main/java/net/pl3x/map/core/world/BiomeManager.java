@@ -3,10 +3,12 @@
  */
 package net.pl3x.map.core.world;
 
+import java.util.Arrays;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 public class BiomeManager {
     private final long hashedSeed;
+    private final ThreadLocal<@NonNull Cells> cells = ThreadLocal.withInitial(Cells::new);
 
     public BiomeManager(long hashedSeed) {
         this.hashedSeed = hashedSeed;
@@ -46,6 +48,69 @@ public class BiomeManager {
         return region.getWorld().getChunk(region, x >> 4, z >> 4).getBiome(x, y, z);
     }
 
+    /**
+     * Get the biomes for every column of a region in one pass.
+     * <p>
+     * Same result as calling {@link #getBiome(Region, int, int, int)} for each column, but the
+     * fiddled offsets and biome of each 4x4x4 cell are only calculated once.
+     *
+     * @param region  Region to get biomes for
+     * @param heights Y of each column, z major, {@link Integer#MIN_VALUE} to skip a column
+     * @param out     Biome index of each column, -1 for skipped columns
+     */
+    public void getBiomes(@NonNull Region region, int @NonNull [] heights, int @NonNull [] out) {
+        Cells cells = this.cells.get();
+        cells.clear();
+        int minX = region.getX() << 9;
+        int minZ = region.getZ() << 9;
+        // neighboring columns mostly share the same 8 cells
+        int[] slots = new int[8];
+        int lastL = 0, lastM = 0, lastN = 0;
+        boolean hasLast = false;
+        for (int index = 0; index < 512 * 512; index++) {
+            int y = heights[index];
+            if (y == Integer.MIN_VALUE) {
+                out[index] = -1;
+                continue;
+            }
+            int i = minX + (index & 511) - 2;
+            int j = y - 2;
+            int k = minZ + (index >> 9) - 2;
+            int l = i >> 2;
+            int m = j >> 2;
+            int n = k >> 2;
+            if (!hasLast || l != lastL || m != lastM || n != lastN) {
+                if (cells.count >= Cells.SIZE >> 1) {
+                    cells.clear();
+                }
+                for (int p = 0; p < 8; ++p) {
+                    slots[p] = cells.get((p & 4) == 0 ? l : l + 1, (p & 2) == 0 ? m : m + 1, (p & 1) == 0 ? n : n + 1);
+                }
+                lastL = l;
+                lastM = m;
+                lastN = n;
+                hasLast = true;
+            }
+            double d = (double) (i & 3) / 4.0D;
+            double e = (double) (j & 3) / 4.0D;
+            double f = (double) (k & 3) / 4.0D;
+            int best = 0;
+            double g = Double.POSITIVE_INFINITY;
+            for (int p = 0; p < 8; ++p) {
+                int slot = slots[p];
+                double h = (p & 4) == 0 ? d : d - 1.0D;
+                double t = (p & 2) == 0 ? e : e - 1.0D;
+                double u = (p & 1) == 0 ? f : f - 1.0D;
+                double v = square(u + cells.fiddles[slot * 3 + 2]) + square(t + cells.fiddles[slot * 3 + 1]) + square(h + cells.fiddles[slot * 3]);
+                if (g > v) {
+                    best = slot;
+                    g = v;
+                }
+            }
+            out[index] = cells.getBiome(region, best);
+        }
+    }
+
     private double getFiddledDistance(long seed, int i, int j, int k, double d, double e, double f) {
         long m = salt(seed, i);
         m = salt(m, j);
@@ -73,4 +138,74 @@ public class BiomeManager {
     private double square(double n) {
         return n * n;
     }
+
+    /**
+     * Open addressing cache of the fiddled offsets and biome of 4x4x4 cells.
+     */
+    private class Cells {
+        private static final int SIZE = 1 << 15;
+        private static final int MASK = SIZE - 1;
+
+        private final long[] keys = new long[SIZE];
+        private final int[] stamps = new int[SIZE];
+        private final int[] biomes = new int[SIZE];
+        private final double[] fiddles = new double[SIZE * 3];
+
+        private int stamp;
+        private int count;
+
+        private void clear() {
+            if (++this.stamp == 0) {
+                Arrays.fill(this.stamps, 0);
+                this.stamp = 1;
+            }
+            this.count = 0;
+        }
+
+        private int get(int i, int j, int k) {
+            long key = ((long) i & 0x7FFFFFF) << 37 | ((long) k & 0x7FFFFFF) << 10 | ((long) j & 0x3FF);
+            int slot = (int) (mix(key) & MASK);
+            while (this.stamps[slot] == this.stamp) {
+                if (this.keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & MASK;
+            }
+            this.stamps[slot] = this.stamp;
+            this.keys[slot] = key;
+            this.biomes[slot] = -1;
+            this.count++;
+
+            long m = salt(hashedSeed, i);
+            m = salt(m, j);
+            m = salt(m, k);
+            m = salt(m, i);
+            m = salt(m, j);
+            m = salt(m, k);
+            this.fiddles[slot * 3] = fiddle(m);
+            m = salt(m, hashedSeed);
+            this.fiddles[slot * 3 + 1] = fiddle(m);
+            m = salt(m, hashedSeed);
+            this.fiddles[slot * 3 + 2] = fiddle(m);
+            return slot;
+        }
+
+        private static long mix(long key) {
+            key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+            key = (key ^ (key >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return key ^ (key >>> 33);
+        }
+
+        private int getBiome(@NonNull Region region, int slot) {
+            int biome = this.biomes[slot];
+            if (biome < 0) {
+                long key = this.keys[slot];
+                int x = (int) (key >> 37) << 2;
+                int y = (int) (key << 54 >> 54) << 2;
+                int z = (int) (key << 27 >> 37) << 2;
+                biome = this.biomes[slot] = region.getWorld().getChunk(region, x >> 4, z >> 4).getBiome(x, y, z).index();
+            }
+            return biome;
+        }
+    }
 }
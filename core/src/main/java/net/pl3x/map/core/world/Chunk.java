@@ -24,6 +24,7 @@
 package net.pl3x.map.core.world;
 
 import java.util.Objects;
+import java.util.Set;
 import net.querz.nbt.tag.CompoundTag;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -37,6 +38,7 @@ public abstract class Chunk {
     private final int zPos;
 
     private final long inhabitedTime;
+    private final Set<@NonNull Requirement> requirements;
 
     protected final BlockData[] data = new BlockData[256];
 
@@ -51,6 +53,7 @@ public abstract class Chunk {
         this.zPos = 0;
 
         this.inhabitedTime = 0;
+        this.requirements = world.getChunkRequirements();
     }
 
     protected Chunk(@NonNull World world, @NonNull Region region, @NonNull CompoundTag tag) {
@@ -61,7 +64,8 @@ public abstract class Chunk {
         this.yPos = tag.getInt("yPos");
         this.zPos = tag.getInt("zPos");
 
-        this.inhabitedTime = tag.getLong("InhabitedTime");
+        this.requirements = world.getChunkRequirements();
+        this.inhabitedTime = requires(Requirement.INHABITED_TIME) ? tag.getLong("InhabitedTime") : 0;
     }
 
     public @NonNull World getWorld() {
@@ -88,6 +92,19 @@ public abstract class Chunk {
         return this.inhabitedTime;
     }
 
+    /**
+     * Get the data this chunk was decoded with.
+     *
+     * @return decoded chunk data
+     */
+    public @NonNull Set<@NonNull Requirement> getRequirements() {
+        return this.requirements;
+    }
+
+    public boolean requires(@NonNull Requirement requirement) {
+        return this.requirements.contains(requirement);
+    }
+
     public abstract boolean isFull();
 
     public abstract boolean noHeightmap();
@@ -155,6 +172,19 @@ public abstract class Chunk {
                 + "}";
     }
 
+    /**
+     * Data a renderer needs decoded from a chunk.
+     * <p>
+     * Chunks only decode what the renderers of their world need, anything else is skipped.
+     */
+    public enum Requirement {
+        BLOCK_STATES,
+        BIOMES,
+        LIGHT,
+        INHABITED_TIME,
+        HEIGHTMAPS
+    }
+
     public static class BlockData {
         protected int blockY, fluidY = 0;
         protected BlockState blockstate, fluidstate = null;
@@ -181,7 +211,7 @@ public abstract class Chunk {
         public @NonNull Biome getBiome(@NonNull Region region, int x, int z) {
             if (this.biome == null) {
                 // calculate real biome
-                this.biome = region.getWorld().getBiomeManager().getBiome(region, x, this.blockY, z);
+                this.biome = region.getBiome(x, this.blockY, z);
             }
             return this.biome;
         }
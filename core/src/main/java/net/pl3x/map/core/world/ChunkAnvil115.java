@@ -27,6 +27,7 @@ package net.pl3x.map.core.world;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import net.pl3x.map.core.Pl3xMap;
 import net.pl3x.map.core.util.Colors;
 import net.pl3x.map.core.util.MCAMath;
@@ -57,22 +58,22 @@ public class ChunkAnvil115 extends Chunk {
             return;
         }
 
-        if (levelData.containsKey("Heightmaps")) {
+        if (requires(Requirement.HEIGHTMAPS) && levelData.containsKey("Heightmaps")) {
             CompoundTag heightmaps = levelData.getCompoundTag("Heightmaps");
             this.worldSurfaceHeights = heightmaps.getLongArray("WORLD_SURFACE");
         }
 
-        if (levelData.containsKey("Sections")) {
+        if (levelData.containsKey("Sections") && (requires(Requirement.BLOCK_STATES) || requires(Requirement.LIGHT))) {
             this.sections = new Section[32]; //32 supports a max world-height of 512 which is the max that the hightmaps of Minecraft V1.13+ can store with 9 bits, i believe?
             for (CompoundTag sectionTag : levelData.getListTag("Sections").asCompoundTagList()) {
-                Section section = new Section(sectionTag);
+                Section section = new Section(sectionTag, getRequirements());
                 if (section.getSectionY() >= 0 && section.getSectionY() < this.sections.length) {
                     this.sections[section.getSectionY()] = section;
                 }
             }
         }
 
-        Tag<?> tag = levelData.get("Biomes"); //tag can be byte-array or int-array
+        Tag<?> tag = requires(Requirement.BIOMES) ? levelData.get("Biomes") : null; //tag can be byte-array or int-array
         if (tag instanceof ByteArrayTag) {
             byte[] bs = ((ByteArrayTag) tag).getValue();
             this.biomes = new int[bs.length];
@@ -146,6 +147,11 @@ public class ChunkAnvil115 extends Chunk {
         if (this.populated) {
             return this;
         }
+        if (!requires(Requirement.BLOCK_STATES)) {
+            // nothing rendered in this world looks at blocks
+            this.populated = true;
+            return this;
+        }
 
         // scan chunk for relevant data
         // block coordinates for most northwest block in chunk
@@ -204,6 +210,7 @@ public class ChunkAnvil115 extends Chunk {
         for (Section section : this.sections) {
             if (section != null) {
                 section.blocks = new long[0];
+                section.indices = null;
                 section.palette = new BlockState[0];
             }
         }
@@ -215,13 +222,14 @@ public class ChunkAnvil115 extends Chunk {
         private final int sectionY;
         private byte[] blockLight;
         private long[] blocks;
+        private short[] indices;
         private BlockState[] palette = new BlockState[0];
         private final int bitsPerBlock;
 
-        public Section(@NonNull CompoundTag sectionData) {
+        public Section(@NonNull CompoundTag sectionData, @NonNull Set<@NonNull Requirement> requirements) {
             this.sectionY = sectionData.getByte("Y");
-            this.blockLight = sectionData.getByteArray("BlockLight");
-            this.blocks = sectionData.getLongArray("BlockStates");
+            this.blockLight = requirements.contains(Requirement.LIGHT) ? sectionData.getByteArray("BlockLight") : new byte[0];
+            this.blocks = requirements.contains(Requirement.BLOCK_STATES) ? sectionData.getLongArray("BlockStates") : new long[0];
 
             if (this.blocks.length < 256 && this.blocks.length > 0) {
                 this.blocks = Arrays.copyOf(this.blocks, 256);
@@ -230,7 +238,7 @@ public class ChunkAnvil115 extends Chunk {
                 this.blockLight = Arrays.copyOf(this.blockLight, 2048);
             }
 
-            ListTag<CompoundTag> paletteTag = sectionData.getListTag("Palette").asCompoundTagList();
+            ListTag<CompoundTag> paletteTag = requirements.contains(Requirement.BLOCK_STATES) ? sectionData.getListTag("Palette").asCompoundTagList() : null;
             if (paletteTag != null) {
                 this.palette = new BlockState[paletteTag.size()];
                 for (int i = 0; i < this.palette.length; i++) {
@@ -263,13 +271,26 @@ public class ChunkAnvil115 extends Chunk {
                 return Blocks.AIR.getDefaultState();
             }
             int index = ((y & 0xF) << 8) + ((z & 0xF) << 4) + (x & 0xF);
-            long value = MCAMath.getValueFromLongArray(this.blocks, index, this.bitsPerBlock);
+            long value = getPaletteIndex(index);
             if (value >= this.palette.length) {
                 return Blocks.AIR.getDefaultState();
             }
             return this.palette[(int) value];
         }
 
+        private long getPaletteIndex(int index) {
+            if (this.indices == null) {
+                if (this.bitsPerBlock > 16) {
+                    // not valid section data, read it one value at a time
+                    return MCAMath.getValueFromLongStream(this.blocks, index, this.bitsPerBlock);
+                }
+                // unpack the whole section at once, the column search reads a lot of it
+                this.indices = new short[4096];
+                MCAMath.unpackLongStream(this.blocks, this.bitsPerBlock, this.indices, 4096);
+            }
+            return this.indices[index] & 0xFFFF;
+        }
+
         public int getLight(int x, int y, int z) {
             if (this.blockLight.length == 0) {
                 return 0;
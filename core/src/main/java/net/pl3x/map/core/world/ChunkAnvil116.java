@@ -29,6 +29,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import net.pl3x.map.core.Pl3xMap;
 import net.pl3x.map.core.util.Colors;
 import net.pl3x.map.core.util.MCAMath;
@@ -62,12 +63,12 @@ public class ChunkAnvil116 extends Chunk {
             return;
         }
 
-        if (levelData.containsKey("Heightmaps")) {
+        if (requires(Requirement.HEIGHTMAPS) && levelData.containsKey("Heightmaps")) {
             CompoundTag heightmaps = levelData.getCompoundTag("Heightmaps");
             this.worldSurfaceHeights = heightmaps.getLongArray("WORLD_SURFACE");
         }
 
-        if (levelData.containsKey("Sections")) {
+        if (levelData.containsKey("Sections") && (requires(Requirement.BLOCK_STATES) || requires(Requirement.LIGHT))) {
             ListTag<CompoundTag> sections = levelData.getListTag("Sections").asCompoundTagList();
             List<Section> list = new ArrayList<>(sections.size());
             int sectionMax = Integer.MIN_VALUE;
@@ -75,7 +76,7 @@ public class ChunkAnvil116 extends Chunk {
                 if (sectionTag.getListTag("Palette") == null) {
                     continue; // ignore empty sections
                 }
-                Section section = new Section(sectionTag);
+                Section section = new Section(sectionTag, getRequirements());
                 int y = section.getSectionY();
                 if (this.sectionMin > y) this.sectionMin = y;
                 if (sectionMax < y) sectionMax = y;
@@ -87,7 +88,7 @@ public class ChunkAnvil116 extends Chunk {
             }
         }
 
-        Tag<?> tag = levelData.get("Biomes"); //tag can be byte-array or int-array
+        Tag<?> tag = requires(Requirement.BIOMES) ? levelData.get("Biomes") : null; //tag can be byte-array or int-array
         if (tag instanceof ByteArrayTag) {
             byte[] bs = ((ByteArrayTag) tag).getValue();
             this.biomes = new int[bs.length];
@@ -159,6 +160,11 @@ public class ChunkAnvil116 extends Chunk {
         if (this.populated) {
             return this;
         }
+        if (!requires(Requirement.BLOCK_STATES)) {
+            // nothing rendered in this world looks at blocks
+            this.populated = true;
+            return this;
+        }
 
         // scan chunk for relevant data
         // block coordinates for most northwest block in chunk
@@ -217,6 +223,7 @@ public class ChunkAnvil116 extends Chunk {
         for (Section section : this.sections) {
             if (section != null) {
                 section.blocks = new long[0];
+                section.indices = null;
                 section.palette = new BlockState[0];
             }
         }
@@ -233,13 +240,14 @@ public class ChunkAnvil116 extends Chunk {
         private final int sectionY;
         private byte[] blockLight;
         private long[] blocks;
+        private short[] indices;
         private BlockState[] palette = new BlockState[0];
         private final int bitsPerBlock;
 
-        public Section(@NonNull CompoundTag sectionData) {
+        public Section(@NonNull CompoundTag sectionData, @NonNull Set<@NonNull Requirement> requirements) {
             this.sectionY = sectionData.getByte("Y");
-            this.blockLight = sectionData.getByteArray("BlockLight");
-            this.blocks = sectionData.getLongArray("BlockStates");
+            this.blockLight = requirements.contains(Requirement.LIGHT) ? sectionData.getByteArray("BlockLight") : new byte[0];
+            this.blocks = requirements.contains(Requirement.BLOCK_STATES) ? sectionData.getLongArray("BlockStates") : new long[0];
 
             if (this.blocks.length < 256 && this.blocks.length > 0) {
                 this.blocks = Arrays.copyOf(this.blocks, 256);
@@ -248,7 +256,7 @@ public class ChunkAnvil116 extends Chunk {
                 this.blockLight = Arrays.copyOf(this.blockLight, 2048);
             }
 
-            ListTag<CompoundTag> paletteTag = sectionData.getListTag("Palette").asCompoundTagList();
+            ListTag<CompoundTag> paletteTag = requirements.contains(Requirement.BLOCK_STATES) ? sectionData.getListTag("Palette").asCompoundTagList() : null;
             if (paletteTag != null) {
                 this.palette = new BlockState[paletteTag.size()];
                 for (int i = 0; i < this.palette.length; i++) {
@@ -281,13 +289,26 @@ public class ChunkAnvil116 extends Chunk {
                 return Blocks.AIR.getDefaultState();
             }
             int index = ((y & 0xF) << 8) + ((z & 0xF) << 4) + (x & 0xF);
-            long value = MCAMath.getValueFromLongArray(this.blocks, index, this.bitsPerBlock);
+            long value = getPaletteIndex(index);
             if (value >= this.palette.length) {
                 return Blocks.AIR.getDefaultState();
             }
             return this.palette[(int) value];
         }
 
+        private long getPaletteIndex(int index) {
+            if (this.indices == null) {
+                if (this.bitsPerBlock > 16) {
+                    // not valid section data, read it one value at a time
+                    return MCAMath.getValueFromLongArray(this.blocks, index, this.bitsPerBlock);
+                }
+                // unpack the whole section at once, the column search reads a lot of it
+                this.indices = new short[4096];
+                MCAMath.unpackLongArray(this.blocks, this.bitsPerBlock, this.indices, 4096);
+            }
+            return this.indices[index] & 0xFFFF;
+        }
+
         public int getLight(int x, int y, int z) {
             if (this.blockLight.length == 0) {
                 return 0;
@@ -29,6 +29,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import net.pl3x.map.core.Pl3xMap;
 import net.pl3x.map.core.util.Colors;
 import net.pl3x.map.core.util.MCAMath;
@@ -56,17 +57,17 @@ public class ChunkAnvil118 extends Chunk {
             return;
         }
 
-        if (chunkTag.containsKey("Heightmaps")) {
+        if (requires(Requirement.HEIGHTMAPS) && chunkTag.containsKey("Heightmaps")) {
             CompoundTag heightmaps = chunkTag.getCompoundTag("Heightmaps");
             this.worldSurfaceHeights = heightmaps.getLongArray("WORLD_SURFACE");
         }
 
-        if (chunkTag.containsKey("sections")) {
+        if (chunkTag.containsKey("sections") && (requires(Requirement.BLOCK_STATES) || requires(Requirement.BIOMES) || requires(Requirement.LIGHT))) {
             ListTag<CompoundTag> sections = chunkTag.getListTag("sections").asCompoundTagList();
             List<Section> list = new ArrayList<>(sections.size());
             int sectionMax = Integer.MIN_VALUE;
             for (CompoundTag sectionTag : sections) {
-                Section section = new Section(world, sectionTag);
+                Section section = new Section(world, sectionTag, getRequirements());
                 int y = section.getSectionY();
                 if (this.sectionMin > y) this.sectionMin = y;
                 if (sectionMax < y) sectionMax = y;
@@ -126,6 +127,11 @@ public class ChunkAnvil118 extends Chunk {
         if (this.populated) {
             return this;
         }
+        if (!requires(Requirement.BLOCK_STATES)) {
+            // nothing rendered in this world looks at blocks
+            this.populated = true;
+            return this;
+        }
 
         // scan chunk for relevant data
         // block coordinates for most northwest block in chunk
@@ -143,6 +149,11 @@ public class ChunkAnvil118 extends Chunk {
                     data.blockY = getWorld().getLogicalHeight();
                     do {
                         data.blockY -= 1;
+                        Section section = getSection(data.blockY >> 4);
+                        if (section != null && section.isSolid()) {
+                            // no air anywhere in this section, jump to its bottom
+                            data.blockY = Math.max(data.blockY & ~0xF, getWorld().getMinBuildHeight());
+                        }
                         data.blockstate = getBlockState(blockX, data.blockY, blockZ);
                     } while (data.blockY > getWorld().getMinBuildHeight() && !data.blockstate.getBlock().isAir());
                 }
@@ -150,6 +161,11 @@ public class ChunkAnvil118 extends Chunk {
                 // iterate down until we find a renderable block
                 do {
                     data.blockY -= 1;
+                    Section section = getSection(data.blockY >> 4);
+                    if (section == null || section.isSkippable()) {
+                        // nothing in this section can end the search, jump to its bottom
+                        data.blockY = Math.max(data.blockY & ~0xF, getWorld().getMinBuildHeight());
+                    }
                     data.blockstate = getBlockState(blockX, data.blockY, blockZ);
                     if (data.blockstate.getBlock().isFluid()) {
                         if (data.fluidstate == null) {
@@ -184,6 +200,7 @@ public class ChunkAnvil118 extends Chunk {
         for (Section section : this.sections) {
             if (section != null) {
                 section.blocks = new long[0];
+                section.indices = null;
                 section.blockPalette = new BlockState[0];
             }
         }
@@ -200,18 +217,24 @@ public class ChunkAnvil118 extends Chunk {
         private final int sectionY;
         private byte[] blockLight;
         private long[] blocks;
+        private short[] indices;
         private long[] biomes = new long[0];
+        private final short[] biomeIndices;
         private BlockState[] blockPalette = new BlockState[0];
         private Biome[] biomePalette = new Biome[0];
         private final int bitsPerBlock;
         private final int bitsPerBiome;
 
-        public Section(@NonNull World world, @NonNull CompoundTag sectionData) {
+        // summaries so the column search can skip whole sections
+        private boolean skippable;
+        private boolean solid;
+
+        public Section(@NonNull World world, @NonNull CompoundTag sectionData, @NonNull Set<@NonNull Requirement> requirements) {
             this.sectionY = sectionData.getByte("Y");
-            this.blockLight = sectionData.getByteArray("BlockLight");
-            this.blocks = sectionData.getLongArray("BlockStates");
+            this.blockLight = requirements.contains(Requirement.LIGHT) ? sectionData.getByteArray("BlockLight") : new byte[0];
+            this.blocks = requirements.contains(Requirement.BLOCK_STATES) ? sectionData.getLongArray("BlockStates") : new long[0];
 
-            CompoundTag blockStatesTag = sectionData.getCompoundTag("block_states");
+            CompoundTag blockStatesTag = requirements.contains(Requirement.BLOCK_STATES) ? sectionData.getCompoundTag("block_states") : null;
             if (blockStatesTag != null) {
                 this.blocks = blockStatesTag.getLongArray("data");
                 ListTag<CompoundTag> paletteTag = blockStatesTag.getListTag("palette").asCompoundTagList();
@@ -233,7 +256,7 @@ public class ChunkAnvil118 extends Chunk {
                 }
             }
 
-            CompoundTag biomesTag = sectionData.getCompoundTag("biomes");
+            CompoundTag biomesTag = requirements.contains(Requirement.BIOMES) ? sectionData.getCompoundTag("biomes") : null;
             if (biomesTag != null) {
                 this.biomes = biomesTag.getLongArray("data");
                 ListTag<StringTag> paletteTag = biomesTag.getListTag("palette").asStringTagList();
@@ -253,6 +276,57 @@ public class ChunkAnvil118 extends Chunk {
             }
             this.bitsPerBlock = this.blocks.length >> 6;
             this.bitsPerBiome = Integer.SIZE - Integer.numberOfLeadingZeros(this.biomePalette.length - 1);
+
+            // biomes are read long after decoding, from any thread, so unpack them up front
+            if (this.biomes.length > 0 && this.bitsPerBiome > 0 && this.bitsPerBiome <= 16) {
+                this.biomeIndices = new short[64];
+                MCAMath.unpackLongArray(this.biomes, this.bitsPerBiome, this.biomeIndices, 64);
+            } else {
+                this.biomeIndices = null;
+            }
+
+            summarize();
+        }
+
+        private void summarize() {
+            if (this.blockPalette.length == 1) {
+                // single state palette
+                Block block = this.blockPalette[0].getBlock();
+                this.solid = !block.isAir();
+                this.skippable = !block.isFluid() && Colors.getRawBlockColor(block) <= 0;
+                return;
+            }
+            // anything but a single state palette can return air for missing or invalid data
+            this.solid = false;
+            this.skippable = true;
+            if (this.blocks.length == 0) {
+                return;
+            }
+            for (BlockState state : this.blockPalette) {
+                Block block = state.getBlock();
+                if (block.isFluid() || Colors.getRawBlockColor(block) > 0) {
+                    this.skippable = false;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Check if nothing in this section is a fluid or renderable, so it can never end a column search.
+         *
+         * @return true if the column search can skip this whole section
+         */
+        public boolean isSkippable() {
+            return this.skippable;
+        }
+
+        /**
+         * Check if this section is a single state that is not air.
+         *
+         * @return true if this section has no air
+         */
+        public boolean isSolid() {
+            return this.solid;
         }
 
         public int getSectionY() {
@@ -267,13 +341,26 @@ public class ChunkAnvil118 extends Chunk {
                 return Blocks.AIR.getDefaultState();
             }
             int blockIndex = ((y & 0xF) << 8) + ((z & 0xF) << 4) + (x & 0xF);
-            long value = MCAMath.getValueFromLongArray(this.blocks, blockIndex, this.bitsPerBlock);
+            long value = getPaletteIndex(blockIndex);
             if (value >= this.blockPalette.length) {
                 return Blocks.AIR.getDefaultState();
             }
             return this.blockPalette[(int) value];
         }
 
+        private long getPaletteIndex(int index) {
+            if (this.indices == null) {
+                if (this.bitsPerBlock > 16) {
+                    // not valid section data, read it one value at a time
+                    return MCAMath.getValueFromLongArray(this.blocks, index, this.bitsPerBlock);
+                }
+                // unpack the whole section at once, the column search reads a lot of it
+                this.indices = new short[4096];
+                MCAMath.unpackLongArray(this.blocks, this.bitsPerBlock, this.indices, 4096);
+            }
+            return this.indices[index] & 0xFFFF;
+        }
+
         public int getLight(int x, int y, int z) {
             if (this.blockLight.length == 0) {
                 return 0;
@@ -292,11 +379,14 @@ public class ChunkAnvil118 extends Chunk {
                 return this.biomePalette[0];
             }
             int biomeIndex = (((y & 0xF) >> 2) << 4) + (((z & 0xF) >> 2) << 2) + ((x & 0xF) >> 2);
-            long value = MCAMath.getValueFromLongArray(this.biomes, biomeIndex, this.bitsPerBiome);
+            if (this.biomeIndices == null) {
+                return Biome.DEFAULT;
+            }
+            int value = this.biomeIndices[biomeIndex] & 0xFFFF;
             if (value >= this.biomePalette.length) {
                 return Biome.DEFAULT;
             }
-            return this.biomePalette[(int) value];
+            return this.biomePalette[value];
         }
     }
 }
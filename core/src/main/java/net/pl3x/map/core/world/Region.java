@@ -24,14 +24,15 @@
 package net.pl3x.map.core.world;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.file.Path;
 import java.util.Objects;
+import net.pl3x.map.core.util.BufferPool;
 import net.querz.mca.CompressionType;
 import net.querz.nbt.io.NBTInputStream;
 import net.querz.nbt.io.NamedTag;
@@ -41,6 +42,11 @@ import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class Region {
+    public static final int NO_HEIGHT = Integer.MIN_VALUE;
+    public static final int HEIGHTS_WIDTH = 513;
+
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
     private final World world;
     private final int regionX;
     private final int regionZ;
@@ -50,6 +56,10 @@ public class Region {
 
     private final int hash;
 
+    private BiomeBlend biomeBlend;
+    private int[] biomes;
+    private volatile int[] heights;
+
     public Region(@NonNull World world, int regionX, int regionZ, @NonNull Path regionFile) {
         this.world = world;
         this.regionX = regionX;
@@ -75,6 +85,121 @@ public class Region {
         return this.regionFile;
     }
 
+    public @NonNull VisibilityMask getVisibility() {
+        return getWorld().getVisibility(getX(), getZ());
+    }
+
+    /**
+     * Get the blended biome colors for this region, building them on first use.
+     *
+     * @return blended biome colors, or null if biome blending is disabled
+     */
+    public synchronized @Nullable BiomeBlend getBiomeBlend() {
+        if (this.biomeBlend == null) {
+            int radius = getWorld().getConfig().RENDER_BIOME_BLEND;
+            if (radius < 1) {
+                return null;
+            }
+            this.biomeBlend = new BiomeBlend(this, radius);
+        }
+        return this.biomeBlend;
+    }
+
+    public synchronized void releaseBiomeBlend() {
+        if (this.biomeBlend != null) {
+            this.biomeBlend.release();
+            this.biomeBlend = null;
+        }
+    }
+
+    /**
+     * Get the biome of a column's surface block.
+     * <p>
+     * The first call calculates the biomes of the whole region in one pass.
+     *
+     * @param x Block X
+     * @param y Surface Y of the column
+     * @param z Block Z
+     * @return biome of the column
+     */
+    public @NonNull Biome getBiome(int x, int y, int z) {
+        if ((x >> 9) != getX() || (z >> 9) != getZ()) {
+            return getWorld().getBiomeManager().getBiome(this, x, y, z);
+        }
+        int biome = getBiomes()[((z & 511) << 9) | (x & 511)];
+        return biome < 0 ? getWorld().getBiomeManager().getBiome(this, x, y, z) : getWorld().getBiomeRegistry().get(biome);
+    }
+
+    private synchronized int @NonNull [] getBiomes() {
+        if (this.biomes == null) {
+            int[] heights = BufferPool.acquireInts(512 * 512);
+            for (int index = 0; index < heights.length; index++) {
+                int x = index & 511;
+                int z = index >> 9;
+                Chunk.BlockData data = getChunk(x >> 4, z >> 4).getData(x, z);
+                heights[index] = data == null ? Integer.MIN_VALUE : data.getBlockY();
+            }
+            this.biomes = BufferPool.acquireInts(512 * 512);
+            getWorld().getBiomeManager().getBiomes(this, heights, this.biomes);
+            BufferPool.releaseInts(heights);
+        }
+        return this.biomes;
+    }
+
+    public synchronized void releaseBiomes() {
+        BufferPool.releaseInts(this.biomes);
+        this.biomes = null;
+    }
+
+    /**
+     * Get the surface height of every column in this region, plus the row and column
+     * just outside its north and west edges.
+     * <p>
+     * Index with {@link #heightIndex(int, int)}. Columns without data are {@link #NO_HEIGHT}.
+     *
+     * @return height grid, {@link #HEIGHTS_WIDTH} squared
+     */
+    public int @NonNull [] getHeights() {
+        // shading reads this for every pixel, only lock while building it
+        int[] grid = this.heights;
+        if (grid != null) {
+            return grid;
+        }
+        return buildHeights();
+    }
+
+    private synchronized int @NonNull [] buildHeights() {
+        if (this.heights == null) {
+            int[] heights = BufferPool.acquireInts(HEIGHTS_WIDTH * HEIGHTS_WIDTH);
+            int minX = getX() << 9;
+            int minZ = getZ() << 9;
+            int index = 0;
+            for (int z = -1; z < 512; z++) {
+                Chunk chunk = null;
+                for (int x = -1; x < 512; x++, index++) {
+                    if (chunk == null || (x & 15) == 0) {
+                        chunk = x < 0 || z < 0
+                                ? getWorld().getChunk(this, (minX + x) >> 4, (minZ + z) >> 4)
+                                : getChunk(x >> 4, z >> 4);
+                    }
+                    Chunk.BlockData data = chunk.getData(minX + x, minZ + z);
+                    heights[index] = data == null ? NO_HEIGHT : data.getBlockY();
+                }
+            }
+            this.heights = heights;
+        }
+        return this.heights;
+    }
+
+    public static int heightIndex(int blockX, int blockZ) {
+        return ((blockZ & 511) + 1) * HEIGHTS_WIDTH + (blockX & 511) + 1;
+    }
+
+    public synchronized void releaseHeights() {
+        BufferPool.releaseInts(this.heights);
+        this.heights = null;
+    }
+
     private int getChunkIndex(int chunkX, int chunkZ) {
         return (chunkX & 0x1F) + ((chunkZ & 0x1F) << 5);
     }
@@ -83,8 +208,15 @@ public class Region {
         int index = getChunkIndex(chunkX, chunkZ);
         Chunk chunk = this.chunks[index];
         if (chunk == null) {
-            try (RandomAccessFile raf = new RandomAccessFile(getRegionFile(), "r")) {
-                chunk = loadChunk(raf, index);
+            try {
+                byte[] payload = getWorld().getChunkPayload((getX() << 5) + (index & 0x1F), (getZ() << 5) + (index >> 5));
+                if (payload != null) {
+                    chunk = loadChunk(index, payload);
+                } else {
+                    try (RandomAccessFile raf = new RandomAccessFile(getRegionFile(), "r")) {
+                        chunk = loadChunk(raf, index);
+                    }
+                }
             } catch (FileNotFoundException ignore) {
             } catch (IOException e) {
                 e.printStackTrace();
@@ -105,28 +237,54 @@ public class Region {
                 if (getWorld().isPaused()) {
                     return;
                 }
-                loadChunk(raf, index);
+                byte[] payload = getWorld().getChunkPayload((getX() << 5) + (index & 0x1F), (getZ() << 5) + (index >> 5));
+                if (payload != null) {
+                    loadChunk(index, payload);
+                } else {
+                    loadChunk(raf, index);
+                }
             }
         }
     }
 
     public @NonNull Chunk loadChunk(@NonNull RandomAccessFile raf, int index) throws IOException {
+        int chunkX = (getX() << 5) + (index & 0x1F);
+        int chunkZ = (getZ() << 5) + (index >> 5);
         raf.seek(index * 4L);
         int offset = raf.read() << 16;
         offset |= (raf.read() & 0xFF) << 8;
         offset |= raf.read() & 0xFF;
-        if (raf.readByte() == 0) {
+        int sectors = raf.readByte() & 0xFF;
+        if (sectors == 0) {
+            getWorld().putChunkPayload(chunkX, chunkZ, NO_PAYLOAD);
+            return this.chunks[index] = new EmptyChunk(getWorld(), this);
+        }
+        raf.seek(4096L * offset);
+
+        // keep the compressed bytes around so this chunk can be parsed
+        // again without touching the file after the region is evicted
+        int length = raf.readInt();
+        if (length < 1 || length > sectors * 4096) {
+            throw new IOException("Invalid chunk length " + length);
+        }
+        byte[] payload = new byte[length];
+        raf.readFully(payload);
+        getWorld().putChunkPayload(chunkX, chunkZ, payload);
+        return loadChunk(index, payload);
+    }
+
+    private @NonNull Chunk loadChunk(int index, byte @NonNull [] payload) throws IOException {
+        if (payload.length == 0) {
             return this.chunks[index] = new EmptyChunk(getWorld(), this);
         }
-        raf.seek(4096L * offset + 4); // +4 skip chunk size
 
-        byte compressionTypeByte = raf.readByte();
+        byte compressionTypeByte = payload[0];
         CompressionType compressionType = CompressionType.getFromID(compressionTypeByte);
         if (compressionType == null) {
             throw new IOException("Invalid compression type " + compressionTypeByte);
         }
 
-        DataInputStream dis = new DataInputStream(new BufferedInputStream(compressionType.decompress(new FileInputStream(raf.getFD()))));
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(compressionType.decompress(new ByteArrayInputStream(payload, 1, payload.length - 1))));
         NamedTag tag = new NBTInputStream(dis).readTag(Tag.DEFAULT_MAX_DEPTH);
         if (tag != null && tag.getTag() instanceof CompoundTag compoundTag) {
             return this.chunks[index] = Chunk.create(getWorld(), this, compoundTag).populate();
@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.pl3x.map.core.markers.area.Area;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Which blocks of a region are inside a world's visible areas.
+ * <p>
+ * Most regions are either fully inside or fully outside, and share the {@link #INSIDE} and {@link #OUTSIDE}
+ * masks. Only regions crossing the edge of an area get a bitset of their 512x512 blocks.
+ */
+public final class VisibilityMask {
+    public static final VisibilityMask INSIDE = new VisibilityMask(Type.INSIDE, null, null, null);
+    public static final VisibilityMask OUTSIDE = new VisibilityMask(Type.OUTSIDE, null, null, null);
+
+    private final Type type;
+    private final long[] blocks; // 512 rows of 8 longs
+    private final long[] anyChunks; // 32 rows of 32 bits
+    private final long[] fullChunks;
+
+    private VisibilityMask(@NonNull Type type, long[] blocks, long[] anyChunks, long[] fullChunks) {
+        this.type = type;
+        this.blocks = blocks;
+        this.anyChunks = anyChunks;
+        this.fullChunks = fullChunks;
+    }
+
+    /**
+     * Work out the visibility mask of a region.
+     *
+     * @param areas   Visible areas, an empty list means everything is visible
+     * @param regionX Region X
+     * @param regionZ Region Z
+     * @return visibility mask
+     */
+    public static @NonNull VisibilityMask create(@NonNull List<@NonNull Area> areas, int regionX, int regionZ) {
+        if (areas.isEmpty()) {
+            return INSIDE;
+        }
+        List<Area> partial = new ArrayList<>();
+        for (Area area : areas) {
+            if (area.containsWholeRegion(regionX, regionZ)) {
+                return INSIDE;
+            }
+            if (area.containsRegion(regionX, regionZ)) {
+                partial.add(area);
+            }
+        }
+        if (partial.isEmpty()) {
+            return OUTSIDE;
+        }
+
+        long[] blocks = new long[512 * 8];
+        int bX = regionX << 9;
+        int bZ = regionZ << 9;
+        for (Area area : partial) {
+            for (int z = 0; z < 512; z++) {
+                for (int x = 0; x < 512; x++) {
+                    if (area.containsBlock(bX + x, bZ + z)) {
+                        blocks[(z << 3) | (x >> 6)] |= 1L << x;
+                    }
+                }
+            }
+        }
+
+        long[] anyChunks = new long[32];
+        long[] fullChunks = new long[32];
+        for (int chunkZ = 0; chunkZ < 32; chunkZ++) {
+            for (int chunkX = 0; chunkX < 32; chunkX++) {
+                int shift = (chunkX & 3) << 4;
+                boolean any = false;
+                boolean full = true;
+                for (int z = chunkZ << 4; z < (chunkZ << 4) + 16; z++) {
+                    long row = (blocks[(z << 3) | (chunkX >> 2)] >>> shift) & 0xFFFF;
+                    any |= row != 0;
+                    full &= row == 0xFFFF;
+                }
+                if (any) {
+                    anyChunks[chunkZ] |= 1L << chunkX;
+                }
+                if (full) {
+                    fullChunks[chunkZ] |= 1L << chunkX;
+                }
+            }
+        }
+        if (allSet(fullChunks)) {
+            return INSIDE;
+        }
+        return new VisibilityMask(Type.PARTIAL, blocks, anyChunks, fullChunks);
+    }
+
+    private static boolean allSet(long @NonNull [] chunks) {
+        for (long row : chunks) {
+            if (row != 0xFFFFFFFFL) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public @NonNull Type getType() {
+        return this.type;
+    }
+
+    public boolean isInside() {
+        return this.type == Type.INSIDE;
+    }
+
+    public boolean isOutside() {
+        return this.type == Type.OUTSIDE;
+    }
+
+    public boolean containsBlock(int blockX, int blockZ) {
+        return switch (this.type) {
+            case INSIDE -> true;
+            case OUTSIDE -> false;
+            case PARTIAL -> (this.blocks[((blockZ & 511) << 3) | ((blockX & 511) >> 6)] & (1L << blockX)) != 0;
+        };
+    }
+
+    /**
+     * Check if any block of a chunk is visible.
+     *
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return true if any block is visible
+     */
+    public boolean containsChunk(int chunkX, int chunkZ) {
+        return switch (this.type) {
+            case INSIDE -> true;
+            case OUTSIDE -> false;
+            case PARTIAL -> (this.anyChunks[chunkZ & 31] & (1L << (chunkX & 31))) != 0;
+        };
+    }
+
+    /**
+     * Check if every block of a chunk is visible.
+     *
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return true if the whole chunk is visible
+     */
+    public boolean containsWholeChunk(int chunkX, int chunkZ) {
+        return switch (this.type) {
+            case INSIDE -> true;
+            case OUTSIDE -> false;
+            case PARTIAL -> (this.fullChunks[chunkZ & 31] & (1L << (chunkX & 31))) != 0;
+        };
+    }
+
+    public enum Type {
+        INSIDE,
+        OUTSIDE,
+        PARTIAL
+    }
+}
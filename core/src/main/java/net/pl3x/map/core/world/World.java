@@ -23,24 +23,32 @@
  */
 package net.pl3x.map.core.world;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import java.io.IOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 import javax.imageio.ImageIO;
 import net.pl3x.map.core.Keyed;
 import net.pl3x.map.core.Pl3xMap;
+import net.pl3x.map.core.configuration.Config;
 import net.pl3x.map.core.configuration.PlayerTracker;
 import net.pl3x.map.core.configuration.WorldConfig;
 import net.pl3x.map.core.event.world.WorldLoadedEvent;
@@ -56,9 +64,13 @@ import net.pl3x.map.core.markers.layer.WorldBorderLayer;
 import net.pl3x.map.core.player.Player;
 import net.pl3x.map.core.registry.BiomeRegistry;
 import net.pl3x.map.core.registry.Registry;
+import net.pl3x.map.core.registry.RendererRegistry;
+import net.pl3x.map.core.renderer.BlockInfoAccumulator;
+import net.pl3x.map.core.renderer.FluidColors;
 import net.pl3x.map.core.renderer.Renderer;
 import net.pl3x.map.core.renderer.task.RegionFileWatcher;
 import net.pl3x.map.core.renderer.task.UpdateMarkerData;
+import net.pl3x.map.core.storage.TileStorage;
 import net.pl3x.map.core.util.FileUtil;
 import net.pl3x.map.core.util.Mathf;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -69,10 +81,14 @@ public abstract class World extends Keyed {
     public static final PathMatcher MCA_MATCHER = FileSystems.getDefault().getPathMatcher("glob:**/r.*.*.mca");
     public static final PathMatcher PNG_MATCHER = FileSystems.getDefault().getPathMatcher("glob:**/*_*.png");
 
+    private static final int REGION_CACHE_SIZE = 100;
+
     private final Path customMarkersDirectory;
     private final Path markersDirectory;
     private final Path regionDirectory;
     private final Path tilesDirectory;
+    private final TileStorage tileStorage;
+    private final BlockInfoAccumulator blockInfoAccumulator;
     private final WorldConfig worldConfig;
 
     private final long seed;
@@ -81,15 +97,19 @@ public abstract class World extends Keyed {
 
     private final BiomeManager biomeManager;
     private final BiomeRegistry biomeRegistry;
+    private final FluidColors fluidColors;
     private final Registry<@NonNull Layer> layerRegistry;
 
     private final LoadingCache<@NonNull Long, @NonNull Region> regionCache;
+    private final Cache<@NonNull Long, byte @NonNull []> chunkPayloadCache;
     private final RegionModifiedState regionModifiedState;
     private final RegionFileWatcher regionFileWatcher;
     private final UpdateMarkerData markerTask;
     private final Map<@NonNull String, Renderer.@NonNull Builder> renderers = new LinkedHashMap<>();
 
     private boolean paused = false;
+    private volatile VisibilityCache visibilityCache;
+    private volatile Set<Chunk.@NonNull Requirement> chunkRequirements = Collections.unmodifiableSet(EnumSet.allOf(Chunk.Requirement.class));
 
     public World(@NonNull String name, long seed, @NonNull Point spawn, @NonNull Type type, @NonNull Path regionDirectory) {
         super(name);
@@ -111,15 +131,25 @@ public abstract class World extends Keyed {
         }
 
         this.worldConfig = new WorldConfig(this);
+        this.tileStorage = TileStorage.create(this);
+        this.blockInfoAccumulator = new BlockInfoAccumulator(this);
 
         this.biomeManager = new BiomeManager(hashSeed(getSeed()));
         this.biomeRegistry = new BiomeRegistry();
+        this.fluidColors = new FluidColors(this);
         this.layerRegistry = new Registry<>();
 
         this.regionCache = Caffeine.newBuilder()
                 .expireAfterWrite(1, TimeUnit.MINUTES)
-                .maximumSize(100)
+                .maximumSize(REGION_CACHE_SIZE)
+                .recordStats()
                 .build(this::loadRegion);
+        this.chunkPayloadCache = Caffeine.newBuilder()
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .maximumWeight(Math.max(0L, Config.CHUNK_CACHE_SIZE) << 20)
+                .<Long, byte[]>weigher((pos, payload) -> payload.length)
+                .recordStats()
+                .build();
 
         this.regionModifiedState = new RegionModifiedState(this);
         this.regionFileWatcher = new RegionFileWatcher(this);
@@ -151,6 +181,22 @@ public abstract class World extends Keyed {
             this.renderers.put(renderer.getKey(), renderer);
         });
 
+        // only decode the chunk data these renderers need
+        Set<Chunk.Requirement> requirements = EnumSet.noneOf(Chunk.Requirement.class);
+        this.renderers.values().forEach(renderer -> requirements.addAll(renderer.getRequirements()));
+        // region scans also run the blockinfo renderer when the ui shows block info
+        String blockInfo = getConfig().UI_BLOCKINFO;
+        if (blockInfo != null && !blockInfo.isEmpty()) {
+            Renderer.Builder renderer = Pl3xMap.api().getRendererRegistry().get(RendererRegistry.BLOCKINFO);
+            if (renderer != null) {
+                requirements.addAll(renderer.getRequirements());
+            }
+        }
+        this.chunkRequirements = Collections.unmodifiableSet(requirements);
+
+        Logger.debug("Loading tile index for " + getName());
+        CompletableFuture.runAsync(() -> getTileStorage().getIndex().load());
+
         if (getConfig().MARKERS_WORLDBORDER_ENABLED) {
             Logger.debug("Registering world border layer");
             getLayerRegistry().register(WorldBorderLayer.KEY, new WorldBorderLayer(this));
@@ -180,8 +226,11 @@ public abstract class World extends Keyed {
     }
 
     public void cleanup() {
+        logCacheStats();
         this.regionCache.invalidateAll();
         getRegionModifiedState().save();
+        getBlockInfoAccumulator().flush();
+        getTileStorage().flush();
     }
 
     public @NonNull Path getCustomMarkersDirectory() {
@@ -200,6 +249,14 @@ public abstract class World extends Keyed {
         return this.tilesDirectory;
     }
 
+    public @NonNull TileStorage getTileStorage() {
+        return this.tileStorage;
+    }
+
+    public @NonNull BlockInfoAccumulator getBlockInfoAccumulator() {
+        return this.blockInfoAccumulator;
+    }
+
     public @NonNull WorldConfig getConfig() {
         return this.worldConfig;
     }
@@ -220,6 +277,15 @@ public abstract class World extends Keyed {
         return Collections.unmodifiableMap(this.renderers);
     }
 
+    /**
+     * Get the chunk data needed by this world's renderers.
+     *
+     * @return required chunk data
+     */
+    public @NonNull Set<Chunk.@NonNull Requirement> getChunkRequirements() {
+        return this.chunkRequirements;
+    }
+
     /**
      * Get whether this world is enabled.
      *
@@ -270,6 +336,10 @@ public abstract class World extends Keyed {
         return this.biomeRegistry;
     }
 
+    public @NonNull FluidColors getFluidColors() {
+        return this.fluidColors;
+    }
+
     public @NonNull Registry<Layer> getLayerRegistry() {
         return this.layerRegistry;
     }
@@ -296,6 +366,32 @@ public abstract class World extends Keyed {
 
     public abstract @NonNull Collection<@NonNull Player> getPlayers();
 
+    /**
+     * Get which blocks of a region are inside this world's visible areas.
+     * <p>
+     * Masks are cached until the visible areas or the world border's block bounds change.
+     *
+     * @param regionX Region X
+     * @param regionZ Region Z
+     * @return visibility mask of the region
+     */
+    public @NonNull VisibilityMask getVisibility(int regionX, int regionZ) {
+        List<Area> areas = getConfig().VISIBLE_AREAS;
+        if (areas.isEmpty()) {
+            return VisibilityMask.INSIDE;
+        }
+        // same integer bounds the border area checks against
+        VisibilityKey key = new VisibilityKey(areas, (int) getBorderMinX(), (int) getBorderMinZ(), (int) getBorderMaxX(), (int) getBorderMaxZ());
+        VisibilityCache cache = this.visibilityCache;
+        if (cache == null || !cache.key().equals(key)) {
+            this.visibilityCache = cache = new VisibilityCache(key, Caffeine.newBuilder()
+                    .expireAfterAccess(1, TimeUnit.MINUTES)
+                    .maximumSize(REGION_CACHE_SIZE)
+                    .build());
+        }
+        return cache.masks().get(Mathf.asLong(regionX, regionZ), pos -> VisibilityMask.create(areas, regionX, regionZ));
+    }
+
     public boolean visibleBlock(int blockX, int blockZ) {
         for (Area area : getConfig().VISIBLE_AREAS) {
             if (area.containsBlock(blockX, blockZ)) {
@@ -323,6 +419,12 @@ public abstract class World extends Keyed {
         return getConfig().VISIBLE_AREAS.isEmpty();
     }
 
+    private record VisibilityKey(@NonNull List<@NonNull Area> areas, int minX, int minZ, int maxX, int maxZ) {
+    }
+
+    private record VisibilityCache(@NonNull VisibilityKey key, @NonNull Cache<@NonNull Long, @NonNull VisibilityMask> masks) {
+    }
+
     public @NonNull Chunk getChunk(@Nullable Region region, int chunkX, int chunkZ) {
         return getRegion(region, chunkX >> 5, chunkZ >> 5).getChunk(chunkX, chunkZ);
     }
@@ -338,12 +440,82 @@ public abstract class World extends Keyed {
         return this.regionCache.get(pos);
     }
 
+    /**
+     * Keep fewer regions cached while memory is low.
+     *
+     * @param shrink True to shrink the cache, false to restore its normal size
+     */
+    public void shrinkRegionCache(boolean shrink) {
+        this.regionCache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(shrink ? REGION_CACHE_SIZE / 4 : REGION_CACHE_SIZE));
+        if (shrink) {
+            this.chunkPayloadCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Get the compressed payload of a chunk that was recently read from its region file.
+     * <p>
+     * The first byte is the compression type, the rest is the compressed chunk data.
+     * An empty array means the region file has no data for this chunk.
+     *
+     * @param chunkX Chunk X
+     * @param chunkZ Chunk Z
+     * @return compressed payload, or null if it is not cached
+     */
+    public byte @Nullable [] getChunkPayload(int chunkX, int chunkZ) {
+        return this.chunkPayloadCache.getIfPresent(Mathf.asLong(chunkX, chunkZ));
+    }
+
+    public void putChunkPayload(int chunkX, int chunkZ, byte @NonNull [] payload) {
+        this.chunkPayloadCache.put(Mathf.asLong(chunkX, chunkZ), payload);
+    }
+
+    public long getRegionCacheSize() {
+        return this.regionCache.estimatedSize();
+    }
+
+    public @NonNull CacheStats getRegionCacheStats() {
+        return this.regionCache.stats();
+    }
+
+    /**
+     * Get how many bytes of compressed chunk data are cached.
+     *
+     * @return cached bytes
+     */
+    public long getChunkPayloadCacheSize() {
+        return this.chunkPayloadCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public @NonNull CacheStats getChunkPayloadCacheStats() {
+        return this.chunkPayloadCache.stats();
+    }
+
+    private void logCacheStats() {
+        CacheStats regions = getRegionCacheStats();
+        CacheStats chunks = getChunkPayloadCacheStats();
+        Logger.debug(String.format("%s region cache: %d regions, %.1f%% hits; chunk cache: %d KB, %.1f%% hits",
+                getName(), getRegionCacheSize(), regions.hitRate() * 100,
+                getChunkPayloadCacheSize() >> 10, chunks.hitRate() * 100));
+    }
+
     public void unloadRegion(int regionX, int regionZ) {
         unloadRegion(Mathf.asLong(regionX, regionZ));
     }
 
     private void unloadRegion(long pos) {
         this.regionCache.invalidate(pos);
+        int minX = Mathf.longToX(pos) << 5;
+        int minZ = Mathf.longToZ(pos) << 5;
+        List<Long> chunks = new ArrayList<>(1024);
+        for (int z = 0; z < 32; z++) {
+            for (int x = 0; x < 32; x++) {
+                chunks.add(Mathf.asLong(minX + x, minZ + z));
+            }
+        }
+        this.chunkPayloadCache.invalidateAll(chunks);
     }
 
     public @NonNull Collection<@NonNull Path> getRegionFiles() {
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import net.pl3x.map.core.util.FileUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BlockInfoTest {
+    private static final int MAGIC = 0x706C3378;
+    private static final int VERSION_1 = 0x6D617001;
+    private static final int VERSION_2 = 0x6D617002;
+
+    private static BlockInfo randomTile(long seed, int blocks, int biomes) {
+        SplittableRandom random = new SplittableRandom(seed);
+        BlockInfo info = new BlockInfo();
+        info.rebase(-64);
+        for (int z = 0; z < 512; z++) {
+            int y = random.nextInt(384);
+            for (int x = 0; x < 512; x++) {
+                // mix flat runs, slopes and jumps to cover every run shape
+                if (random.nextInt(8) == 0) {
+                    y = random.nextInt(384);
+                }
+                info.set(z * 512 + x, random.nextInt(blocks), random.nextInt(biomes), y);
+            }
+        }
+        return info;
+    }
+
+    private static void assertSameTile(BlockInfo expected, BlockInfo actual) {
+        assertEquals(expected.getMinY(), actual.getMinY());
+        for (int i = 0; i < BlockInfo.SIZE; i++) {
+            assertEquals(expected.getBlock(i), actual.getBlock(i), "block " + i);
+            assertEquals(expected.getBiome(i), actual.getBiome(i), "biome " + i);
+            assertEquals(expected.getY(i), actual.getY(i), "y " + i);
+        }
+    }
+
+    @Test
+    public void v2RoundTrip() throws IOException {
+        for (int[] sizes : new int[][]{{1, 1}, {2, 3}, {17, 64}, {1024, 1024}}) {
+            BlockInfo written = randomTile(sizes[0] * 31L + sizes[1], sizes[0], sizes[1]);
+            BlockInfo read = new BlockInfo();
+            read.read(written.toBytes());
+            assertSameTile(written, read);
+        }
+    }
+
+    @Test
+    public void v2WriteIsStable() throws IOException {
+        BlockInfo written = randomTile(7, 40, 8);
+        byte[] bytes = written.toBytes();
+        BlockInfo read = new BlockInfo();
+        read.read(bytes);
+        assertArrayEquals(FileUtil.gunzip(bytes), FileUtil.gunzip(read.toBytes()));
+    }
+
+    @Test
+    public void readsV1() throws IOException {
+        BlockInfo expected = randomTile(11, 1024, 1024);
+        ByteBuffer buffer = ByteBuffer.allocate(12 + BlockInfo.SIZE * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION_1).putInt(expected.getMinY());
+        for (int i = 0; i < BlockInfo.SIZE; i++) {
+            buffer.putInt(expected.getBlock(i) << 22 | expected.getBiome(i) << 12 | (expected.getY(i) - expected.getMinY()));
+        }
+        BlockInfo read = new BlockInfo();
+        read.read(FileUtil.gzip(buffer.array()));
+        assertSameTile(expected, read);
+    }
+
+    @Test
+    public void readsKnownV2() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION_2).putInt(-64);
+        buffer.putInt(1).putInt(5); // block palette
+        buffer.putInt(2).putInt(3).putInt(9); // biome palette
+        buffer.put((byte) 0).put((byte) 1);
+        for (int i = 0; i < BlockInfo.SIZE; i += 32) {
+            buffer.putInt(0xAAAAAAAA); // biomes alternate 3, 9
+        }
+        for (int z = 0; z < 512; z++) {
+            // first column one higher than the row above, then a flat run
+            buffer.put((byte) 1).put((byte) 2);
+            buffer.put((byte) 0xFF).put((byte) 0x03).put((byte) 0);
+        }
+        BlockInfo read = new BlockInfo();
+        read.read(FileUtil.gzip(Arrays.copyOf(buffer.array(), buffer.position())));
+        assertEquals(-64, read.getMinY());
+        for (int z = 0; z < 512; z++) {
+            for (int x = 0; x < 512; x++) {
+                int i = z * 512 + x;
+                assertEquals(5, read.getBlock(i));
+                assertEquals((i & 1) == 0 ? 3 : 9, read.getBiome(i));
+                assertEquals(z + 1 - 64, read.getY(i));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsBadRuns() throws IOException {
+        for (int run : new int[]{0, 513}) {
+            ByteBuffer buffer = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION_2).putInt(0);
+            buffer.putInt(1).putInt(0).putInt(1).putInt(0);
+            buffer.put((byte) 0).put((byte) 0);
+            buffer.put((byte) (run & 0x7F | (run > 127 ? 0x80 : 0)));
+            if (run > 127) {
+                buffer.put((byte) (run >> 7));
+            }
+            buffer.put((byte) 0);
+            byte[] bytes = FileUtil.gzip(Arrays.copyOf(buffer.array(), buffer.position()));
+            IOException e = assertThrows(IOException.class, () -> new BlockInfo().read(bytes), "run " + run);
+            assertEquals("Bad height run in blockinfo tile", e.getMessage(), "run " + run);
+        }
+    }
+}
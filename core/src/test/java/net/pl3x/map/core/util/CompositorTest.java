@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.util;
+
+import java.awt.Color;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class CompositorTest {
+    private static final int[] CHANNELS = {0, 1, 2, 3, 15, 16, 63, 64, 100, 127, 128, 129, 170, 200, 253, 254, 255};
+
+    // Colors.blend before it delegated to Compositor
+    private static int blendReference(int color0, int color1) {
+        double a0 = (double) (color0 >>> 24) / 0xFF;
+        double a1 = (double) (color1 >>> 24) / 0xFF;
+        double a = a0 + a1 * (1 - a0);
+        double r = ((color0 >> 16 & 0xFF) * a0 + (color1 >> 16 & 0xFF) * a1 * (1 - a0)) / a;
+        double g = ((color0 >> 8 & 0xFF) * a0 + (color1 >> 8 & 0xFF) * a1 * (1 - a0)) / a;
+        double b = ((color0 & 0xFF) * a0 + (color1 & 0xFF) * a1 * (1 - a0)) / a;
+        return Colors.argb((int) a * 0xFF, (int) r, (int) g, (int) b);
+    }
+
+    // Colors.lerpHSB before it delegated to Compositor
+    private static int lerpHSBReference(int color0, int color1, float delta, boolean useShortestAngle) {
+        float[] hsb0 = Color.RGBtoHSB(Colors.red(color0), Colors.green(color0), Colors.blue(color0), null);
+        float[] hsb1 = Color.RGBtoHSB(Colors.red(color1), Colors.green(color1), Colors.blue(color1), null);
+        return Colors.setAlpha(
+                (int) Mathf.lerp(Colors.alpha(color0), Colors.alpha(color1), delta),
+                Color.HSBtoRGB(
+                        useShortestAngle ?
+                                Colors.lerpShortestAngle(hsb0[0], hsb1[0], delta) :
+                                Mathf.lerp(hsb0[0], hsb1[0], delta),
+                        Mathf.lerp(hsb0[1], hsb1[1], delta),
+                        Mathf.lerp(hsb0[2], hsb1[2], delta)
+                )
+        );
+    }
+
+    private static void assertBlend(int color0, int color1) {
+        int expected = blendReference(color0, color1);
+        int actual = Compositor.blend(color0, color1);
+        if (expected != actual) {
+            fail(String.format("blend(%08X, %08X) expected %08X but was %08X", color0, color1, expected, actual));
+        }
+    }
+
+    @Test
+    public void blendMatchesReferenceForAllAlphaPairs() {
+        for (int a0 = 0; a0 < 256; a0++) {
+            for (int a1 = 0; a1 < 256; a1++) {
+                for (int v0 : CHANNELS) {
+                    for (int v1 : CHANNELS) {
+                        // vary each channel differently so they can not mask each other
+                        assertBlend(a0 << 24 | v0 << 16 | v1 << 8 | (v0 ^ v1),
+                                a1 << 24 | v1 << 16 | v0 << 8 | (255 - v1));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blendMatchesReferenceUnderTransparentColor() {
+        // top color fully transparent goes through the precomputed table
+        for (int a1 = 0; a1 < 256; a1++) {
+            for (int v = 0; v < 256; v++) {
+                assertBlend(v << 16 | (255 - v) << 8 | v, a1 << 24 | v << 16 | (255 - v) << 8 | (v * 7 & 0xFF));
+            }
+        }
+    }
+
+    @Test
+    public void blendMatchesReferenceOnWholeQuotients() {
+        // whole number quotients are where the integer path falls back to the double formula,
+        // check every channel pair for the extreme alphas and a sample of the others
+        SplittableRandom random = new SplittableRandom(0x706C3378);
+        int checked = 0;
+        for (int i = 0; i < 160; i++) {
+            int a0 = i < 2 ? 1 + i * 253 : random.nextInt(1, 255);
+            int a1 = (i & 1) == 0 ? 255 : random.nextInt(256);
+            int w0 = a0 * 0xFF;
+            int w1 = a1 * (0xFF - a0);
+            int den = w0 + w1;
+            for (int v0 = 0; v0 < 256; v0++) {
+                for (int v1 = 0; v1 < 256; v1++) {
+                    if ((v0 * w0 + v1 * w1) % den == 0) {
+                        assertBlend(a0 << 24 | v0 << 16 | v0 << 8 | v0, a1 << 24 | v1 << 16 | v1 << 8 | v1);
+                        checked++;
+                    }
+                }
+            }
+        }
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    public void blendMatchesReferenceForRandomColors() {
+        SplittableRandom random = new SplittableRandom(0x706C3378);
+        for (int i = 0; i < 2_000_000; i++) {
+            assertBlend(random.nextInt(), random.nextInt());
+        }
+    }
+
+    @Test
+    public void lerpHSBMatchesReference() {
+        SplittableRandom random = new SplittableRandom(0x706C3378);
+        float[] deltas = {0F, 0.25F, 0.5F, 0.75F, 1F};
+        for (int i = 0; i < 200_000; i++) {
+            int color0 = random.nextInt();
+            int color1 = random.nextInt();
+            // grays and black hit the zero saturation and zero brightness branches
+            if ((i & 7) == 0) {
+                int v = color0 & 0xFF;
+                color0 = color0 & 0xFF000000 | v << 16 | v << 8 | v;
+            } else if ((i & 7) == 1) {
+                color1 &= 0xFF000000;
+            }
+            float delta = (i & 1) == 0 ? deltas[i % deltas.length] : (float) random.nextDouble();
+            for (boolean shortest : new boolean[]{false, true}) {
+                int expected = lerpHSBReference(color0, color1, delta, shortest);
+                int actual = Compositor.lerpHSB(color0, color1, delta, shortest);
+                if (expected != actual) {
+                    fail(String.format("lerpHSB(%08X, %08X, %s, %s) expected %08X but was %08X", color0, color1, delta, shortest, expected, actual));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 William Blake Galbreath
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package net.pl3x.map.core.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MCAMathTest {
+    private static final int SECTION = 4096;
+
+    private static long[] randomLongs(int length, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] data = new long[length];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextLong();
+        }
+        return data;
+    }
+
+    private static int arrayLength(int bits) {
+        int valuesPerLong = 64 / bits;
+        return (SECTION + valuesPerLong - 1) / valuesPerLong;
+    }
+
+    private static int streamLength(int bits) {
+        return (SECTION * bits + 63) >> 6;
+    }
+
+    @Test
+    public void unpackLongArrayMatchesPerValueReader() {
+        for (int bits = 1; bits <= 16; bits++) {
+            long[] data = randomLongs(arrayLength(bits), bits);
+            short[] out = new short[SECTION];
+            MCAMath.unpackLongArray(data, bits, out, SECTION);
+            for (int i = 0; i < SECTION; i++) {
+                assertEquals(MCAMath.getValueFromLongArray(data, i, bits), out[i] & 0xFFFF, "bits " + bits + " index " + i);
+            }
+        }
+    }
+
+    @Test
+    public void unpackLongStreamMatchesPerValueReader() {
+        for (int bits = 1; bits <= 16; bits++) {
+            long[] data = randomLongs(streamLength(bits), bits);
+            short[] out = new short[SECTION];
+            MCAMath.unpackLongStream(data, bits, out, SECTION);
+            for (int i = 0; i < SECTION; i++) {
+                assertEquals(MCAMath.getValueFromLongStream(data, i, bits), out[i] & 0xFFFF, "bits " + bits + " index " + i);
+            }
+        }
+    }
+
+    @Test
+    public void unpackLongArrayZeroesValuesPastTruncatedData() {
+        for (int bits = 1; bits <= 16; bits++) {
+            int valuesPerLong = 64 / bits;
+            for (int length : new int[]{0, 1, arrayLength(bits) / 2, arrayLength(bits) - 1}) {
+                long[] data = randomLongs(length, bits * 31L + length);
+                short[] out = new short[SECTION];
+                Arrays.fill(out, (short) -1);
+                MCAMath.unpackLongArray(data, bits, out, SECTION);
+                for (int i = 0; i < SECTION; i++) {
+                    long expected = i / valuesPerLong < length ? MCAMath.getValueFromLongArray(data, i, bits) : 0;
+                    assertEquals(expected, out[i] & 0xFFFF, "bits " + bits + " length " + length + " index " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unpackLongStreamZeroesValuesPastTruncatedData() {
+        for (int bits = 1; bits <= 16; bits++) {
+            for (int length : new int[]{0, 1, streamLength(bits) / 2, streamLength(bits) - 1}) {
+                long[] data = randomLongs(length, bits * 31L + length);
+                short[] out = new short[SECTION];
+                Arrays.fill(out, (short) -1);
+                MCAMath.unpackLongStream(data, bits, out, SECTION);
+                for (int i = 0; i < SECTION; i++) {
+                    // only values that fit completely in the data are read, a value cut off by the end is missing data
+                    long expected = (long) (i + 1) * bits <= (long) length << 6 ? MCAMath.getValueFromLongStream(data, i, bits) : 0;
+                    assertEquals(expected, out[i] & 0xFFFF, "bits " + bits + " length " + length + " index " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unpackOnlyWritesCountValues() {
+        for (int bits = 1; bits <= 16; bits++) {
+            short[] array = new short[SECTION];
+            short[] stream = new short[SECTION];
+            Arrays.fill(array, (short) -1);
+            Arrays.fill(stream, (short) -1);
+            MCAMath.unpackLongArray(randomLongs(arrayLength(bits), bits), bits, array, 64);
+            MCAMath.unpackLongStream(randomLongs(streamLength(bits), bits), bits, stream, 64);
+            for (int i = 64; i < SECTION; i++) {
+                assertEquals(-1, array[i]);
+                assertEquals(-1, stream[i]);
+            }
+        }
+    }
+}
@@ -27,7 +27,9 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import net.fabricmc.api.DedicatedServerModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
@@ -51,6 +53,7 @@ import net.minecraft.world.level.block.RedStoneWireBlock;
 import net.minecraft.world.level.levelgen.feature.ConfiguredFeature;
 import net.minecraft.world.level.levelgen.feature.configurations.RandomPatchConfiguration;
 import net.minecraft.world.level.levelgen.feature.configurations.SimpleBlockConfiguration;
+import net.minecraft.world.level.levelgen.feature.stateproviders.BlockStateProvider;
 import net.pl3x.map.core.Pl3xMap;
 import net.pl3x.map.core.event.server.ServerLoadedEvent;
 import net.pl3x.map.core.player.Player;
@@ -63,6 +66,7 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 public class Pl3xMapFabric extends Pl3xMap implements DedicatedServerModInitializer {
     @SuppressWarnings("deprecation")
     private final RandomSource randomSource = RandomSource.createThreadSafe();
+    private final Map<@NonNull String, @NonNull Optional<BlockStateProvider>> flowerProviders = new ConcurrentHashMap<>();
     private final PlayerListener playerListener = new PlayerListener();
 
     private MinecraftServer server;
@@ -181,23 +185,57 @@ public class Pl3xMapFabric extends Pl3xMap implements DedicatedServerModInitiali
 
     @Override
     public net.pl3x.map.core.world.@Nullable Block getFlower(@NonNull World world, net.pl3x.map.core.world.@NonNull Biome biome, int blockX, int blockY, int blockZ) {
-        // https://github.com/Draradech/FlowerMap (CC0-1.0 license)
-        Biome nms = world.<ServerLevel>getLevel().registryAccess().registryOrThrow(Registries.BIOME).get(new ResourceLocation(biome.getKey()));
-        if (nms == null) {
+        BlockStateProvider provider = getFlowerProvider(world, biome);
+        if (provider == null) {
             return null;
         }
-        List<ConfiguredFeature<?, ?>> flowers = nms.getGenerationSettings().getFlowerFeatures();
-        if (flowers.isEmpty()) {
-            return null;
+        return toBlock(provider.getState(this.randomSource, new BlockPos(blockX, blockY, blockZ)).getBlock());
+    }
+
+    @Override
+    public void getFlowers(@NonNull World world, net.pl3x.map.core.world.@NonNull Biome @NonNull [] biomes, int @NonNull [] blockX, int @NonNull [] blockY, int @NonNull [] blockZ, int count, int @NonNull [] out) {
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        net.pl3x.map.core.world.Biome biome = null;
+        BlockStateProvider provider = null;
+        for (int i = 0; i < count; i++) {
+            if (biomes[i] != biome) {
+                biome = biomes[i];
+                provider = getFlowerProvider(world, biome);
+            }
+            if (provider == null) {
+                out[i] = -1;
+                continue;
+            }
+            net.pl3x.map.core.world.Block flower = toBlock(provider.getState(this.randomSource, pos.set(blockX[i], blockY[i], blockZ[i])).getBlock());
+            out[i] = flower == null ? -1 : flower.getIndex();
         }
-        RandomPatchConfiguration config = (RandomPatchConfiguration) flowers.get(0).config();
-        SimpleBlockConfiguration flower = (SimpleBlockConfiguration) config.feature().value().feature().value().config();
-        Block block = flower.toPlace().getState(this.randomSource, new BlockPos(blockX, blockY, blockZ)).getBlock();
+    }
+
+    private @Nullable BlockStateProvider getFlowerProvider(@NonNull World world, net.pl3x.map.core.world.@NonNull Biome biome) {
+        return this.flowerProviders.computeIfAbsent(biome.getKey(), key -> {
+            // https://github.com/Draradech/FlowerMap (CC0-1.0 license)
+            Biome nms = world.<ServerLevel>getLevel().registryAccess().registryOrThrow(Registries.BIOME).get(new ResourceLocation(key));
+            if (nms == null) {
+                return Optional.empty();
+            }
+            List<ConfiguredFeature<?, ?>> flowers = nms.getGenerationSettings().getFlowerFeatures();
+            if (flowers.isEmpty()) {
+                return Optional.empty();
+            }
+            RandomPatchConfiguration config = (RandomPatchConfiguration) flowers.get(0).config();
+            SimpleBlockConfiguration flower = (SimpleBlockConfiguration) config.feature().value().feature().value().config();
+            return Optional.of(flower.toPlace());
+        }).orElse(null);
+    }
+
+    private net.pl3x.map.core.world.@NonNull Block toBlock(@NonNull Block block) {
         return getBlockRegistry().get(BuiltInRegistries.BLOCK.getKey(block).toString());
     }
 
     @Override
     protected void loadBlocks() {
+        // biomes may have changed since the last load
+        this.flowerProviders.clear();
         for (Map.Entry<ResourceKey<Block>, Block> entry : this.server.registryAccess().registryOrThrow(Registries.BLOCK).entrySet()) {
             String id = entry.getKey().location().toString();
             int color = entry.getValue().defaultMaterialColor().col;
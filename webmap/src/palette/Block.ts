@@ -2,13 +2,11 @@ export class Block {
     private readonly _block: number;
     private readonly _biome: number;
     private readonly _yPos: number;
-    private readonly _minY: number;
 
-    constructor(packed: number, minY: number) {
-        this._block = packed >>> 22;
-        this._biome = (packed << 10) >> 22;
-        this._yPos = ((packed << 20) >> 20);
-        this._minY = minY;
+    constructor(block: number, biome: number, yPos: number) {
+        this._block = block;
+        this._biome = biome;
+        this._yPos = yPos;
     }
 
     get block(): number {
@@ -20,6 +18,6 @@ export class Block {
     }
 
     get yPos(): number {
-        return this._yPos + this._minY;
+        return this._yPos;
     }
 }
@@ -1,25 +1,135 @@
 import {Block} from "./Block";
 
+/**
+ * Block, biome and height of every column in a blockinfo tile.
+ *
+ * See BlockInfo.java for the format of both versions.
+ */
 export class BlockInfo {
-    private readonly _data: Uint8Array;
+    private static readonly MAGIC: number = 0x706C3378; // pl3x
+    private static readonly VERSION_1: number = 0x6D617001; // map1
+    private static readonly VERSION_2: number = 0x6D617002; // map2
+
+    private readonly _data: DataView;
+    private readonly _version: number;
+    private readonly _minY: number;
+
+    private _blocks?: Int32Array;
+    private _biomes?: Int32Array;
+    private _heights?: Int32Array;
 
     constructor(data: Uint8Array) {
-        this._data = data;
+        this._data = new DataView(data.buffer, data.byteOffset, data.byteLength);
+        if (this._data.getInt32(0, true) !== BlockInfo.MAGIC) {
+            throw new Error('Not a blockinfo tile');
+        }
+        this._version = this._data.getInt32(4, true);
+        this._minY = this._data.getInt32(8, true);
+        if (this._version === BlockInfo.VERSION_1) {
+            if (this._data.byteLength < 12 + 512 * 512 * 4) {
+                throw new Error('Truncated blockinfo tile');
+            }
+        } else if (this._version === BlockInfo.VERSION_2) {
+            this.decode();
+        } else {
+            throw new Error('Unknown blockinfo version');
+        }
     }
 
     get minY(): number {
-        return this.getInt(8);
+        return this._minY;
     }
 
     getBlock(index: number): Block {
-        return new Block(this.getInt(12 + index * 4), this.minY);
+        if (this._version === BlockInfo.VERSION_1) {
+            const packed: number = this._data.getInt32(12 + index * 4, true);
+            return new Block(packed >>> 22, (packed >>> 12) & 1023, (packed & 4095) + this._minY);
+        }
+        return new Block(this._blocks![index], this._biomes![index], this._heights![index] + this._minY);
     }
 
-    private getInt(position: number): number {
-        let val: number = 0;
-        for (let i: number = 0; i < 4; i++) {
-            val |= (this._data[position + i] & 0xFF) << (i * 8);
+    private decode(): void {
+        const size: number = 512 * 512;
+        let pos: number = 12;
+
+        const readPalette = (): number[] => {
+            const palette: number[] = [];
+            const length: number = this._data.getInt32(pos, true);
+            pos += 4;
+            if (length < 1 || length > size) {
+                throw new Error('Bad palette size in blockinfo tile');
+            }
+            for (let i: number = 0; i < length; i++) {
+                palette.push(this._data.getInt32(pos, true));
+                pos += 4;
+            }
+            return palette;
+        }
+
+        const unpack = (palette: number[], bits: number): Int32Array => {
+            const values: Int32Array = new Int32Array(size);
+            if (bits === 0) {
+                return values.fill(palette[0]);
+            }
+            if (bits < 0 || bits > 32) {
+                throw new Error('Bad bits per entry in blockinfo tile');
+            }
+            const perWord: number = Math.floor(32 / bits);
+            const mask: number = bits === 32 ? -1 : (1 << bits) - 1;
+            for (let i: number = 0; i < size; i += perWord) {
+                const word: number = this._data.getInt32(pos, true);
+                pos += 4;
+                for (let j: number = 0, end: number = Math.min(perWord, size - i); j < end; j++) {
+                    const index: number = (word >>> (j * bits)) & mask;
+                    if (index < 0 || index >= palette.length) {
+                        throw new Error('Bad palette index in blockinfo tile');
+                    }
+                    values[i + j] = palette[index];
+                }
+            }
+            return values;
+        }
+
+        const readVarInt = (): number => {
+            let value: number = 0;
+            for (let shift: number = 0; shift < 35; shift += 7) {
+                const b: number = this._data.getUint8(pos++);
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) === 0) {
+                    return value;
+                }
+            }
+            throw new Error('Bad varint in blockinfo tile');
+        }
+
+        const blockPalette: number[] = readPalette();
+        const biomePalette: number[] = readPalette();
+        const blockBits: number = this._data.getUint8(pos);
+        const biomeBits: number = this._data.getUint8(pos + 1);
+        pos += 2;
+        this._blocks = unpack(blockPalette, blockBits);
+        this._biomes = unpack(biomePalette, biomeBits);
+
+        const heights: Int32Array = new Int32Array(size);
+        let above: number = 0;
+        for (let z: number = 0; z < 512; z++) {
+            const row: number = z * 512;
+            let prev: number = above;
+            let x: number = 0;
+            while (x < 512) {
+                const run: number = readVarInt();
+                const zigzag: number = readVarInt();
+                const delta: number = (zigzag >>> 1) ^ -(zigzag & 1);
+                if (run <= 0 || x + run > 512) {
+                    throw new Error('Bad height run in blockinfo tile');
+                }
+                for (const end: number = x + run; x < end; x++) {
+                    prev += delta;
+                    heights[row + x] = prev;
+                }
+            }
+            above = heights[row];
         }
-        return val;
+        this._heights = heights;
     }
 }
@@ -12,7 +12,7 @@ export class WorldSettings {
 
     private _tileUpdateInterval: number = 5;
     private _spawn: Spawn = new Spawn(0, 0);
-    private _zoom: Zoom = new Zoom(0, 3, 2);
+    private _zoom: Zoom = new Zoom(0, 3, 2, 3);
     private _ui: UI = new UI()
 
     constructor(name: string, displayName: string, type: string, order: number, renderers: Renderer[]) {
@@ -146,11 +146,13 @@ export class Zoom {
     private readonly _def: number;
     private readonly _maxOut: number;
     private readonly _maxIn: number;
+    private readonly _blockInfo: number;
 
-    constructor(def: number, maxOut: number, maxIn: number) {
+    constructor(def: number, maxOut: number, maxIn: number, blockInfo: number) {
         this._def = def;
         this._maxOut = maxOut;
         this._maxIn = maxIn;
+        this._blockInfo = blockInfo;
     }
 
     get default(): number {
@@ -164,4 +166,8 @@ export class Zoom {
     get maxIn(): number {
         return this._maxIn;
     }
+
+    get blockInfo(): number {
+        return this._blockInfo;
+    }
 }
@@ -81,6 +81,12 @@ export class ReversedZoomTileLayer extends L.TileLayer {
         tile.alt = '';
         tile.setAttribute('role', 'presentation');
 
+        // don't bother asking for tiles that were never rendered
+        if (!this._world.hasTile(this._world.settings.zoom.maxOut - coords.z, coords.x, coords.y)) {
+            setTimeout(() => done(new Error('Tile does not exist'), tile));
+            return tile;
+        }
+
         // Retrieve image via a fetch instead of just setting the src
         // This works around the fact that browsers usually don't make a request for an image that was previously loaded,
         // without resorting to changing the URL (which would break caching).
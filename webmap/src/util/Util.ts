@@ -32,6 +32,48 @@ export function getBytes(url: string) {
     });
 }
 
+/**
+ * Cache validators of a fetched file, the ETag or else the Last-Modified header.
+ */
+export interface Validators {
+    etag?: string;
+    lastModified?: string;
+}
+
+/**
+ * Fetch bytes only if they changed since they were last fetched.
+ *
+ * Resolves to undefined when the server answers 304 Not Modified, or when the
+ * response carries the same validators as before (such as a revalidated browser cache hit).
+ */
+export function getBytesIfModified(url: string, since?: Validators): Promise<{ buffer: ArrayBuffer, validators: Validators } | undefined> {
+    const headers: Record<string, string> = {
+        "Content-Disposition": "inline"
+    };
+    if (since?.etag) {
+        headers["If-None-Match"] = since.etag;
+    } else if (since?.lastModified) {
+        headers["If-Modified-Since"] = since.lastModified;
+    }
+    return fetch(url, {
+        headers: headers
+    }).then(async res => {
+        if (!res.ok) {
+            return undefined; // includes 304 Not Modified
+        }
+        const validators: Validators = {
+            etag: res.headers.get('ETag') ?? undefined,
+            lastModified: res.headers.get('Last-Modified') ?? undefined
+        };
+        if (since !== undefined && (validators.etag !== undefined
+            ? validators.etag === since.etag
+            : validators.lastModified !== undefined && validators.lastModified === since.lastModified)) {
+            return undefined;
+        }
+        return {buffer: await res.arrayBuffer(), validators: validators};
+    });
+}
+
 export function getUrlParam<T>(query: string, def: T): T {
     return new URLSearchParams(window.location.search).get(query) as unknown as T ?? def;
 }
@@ -0,0 +1,51 @@
+/**
+ * Which tiles exist for each zoom level of a world.
+ *
+ * Parsed from the world's tiles.bin, see TileIndex.java for the format.
+ */
+export class TileIndex {
+    private static readonly MAGIC: number = 0x706C3378; // pl3x
+    private static readonly VERSION: number = 1;
+
+    private readonly _zooms: Map<number, Set<string>> = new Map();
+
+    constructor(buffer: ArrayBuffer) {
+        const view: DataView = new DataView(buffer);
+        if (view.getInt32(0) !== TileIndex.MAGIC || view.getUint8(4) !== TileIndex.VERSION) {
+            throw new Error('Unknown tile index format');
+        }
+        const zooms: number = view.getUint8(5);
+        let pos: number = 6;
+        for (let zoom: number = 0; zoom < zooms; zoom++) {
+            const tiles: Set<string> = new Set();
+            this._zooms.set(zoom, tiles);
+            const encoding: number = view.getUint8(pos);
+            pos += 1;
+            if (encoding === 1) {
+                const count: number = view.getInt32(pos);
+                pos += 4;
+                for (let i: number = 0; i < count; i++) {
+                    tiles.add(`${view.getInt32(pos)}_${view.getInt32(pos + 4)}`);
+                    pos += 8;
+                }
+                continue;
+            }
+            const minX: number = view.getInt32(pos);
+            const minZ: number = view.getInt32(pos + 4);
+            const width: number = view.getInt32(pos + 8);
+            const height: number = view.getInt32(pos + 12);
+            pos += 16;
+            const bits: number = width * height;
+            for (let bit: number = 0; bit < bits; bit++) {
+                if ((view.getUint8(pos + (bit >> 3)) & (1 << (bit & 7))) !== 0) {
+                    tiles.add(`${minX + bit % width}_${minZ + Math.floor(bit / width)}`);
+                }
+            }
+            pos += (bits + 7) >> 3;
+        }
+    }
+
+    public has(zoom: number, x: number, z: number): boolean {
+        return this._zooms.get(zoom)?.has(`${x}_${z}`) ?? false;
+    }
+}
@@ -4,8 +4,9 @@ import {BlockInfo} from "../palette/BlockInfo";
 import {Label} from "../settings/Lang";
 import {Spawn, WorldSettings, Zoom} from "../settings/WorldSettings";
 import {DoubleTileLayer} from "../tilelayer/DoubleTileLayer";
+import {TileIndex} from "./TileIndex";
 import {WorldManager} from "./WorldManager";
-import {fireCustomEvent, getBytes, getJSON} from "../util/Util";
+import {fireCustomEvent, getBytes, getBytesIfModified, getJSON, Validators} from "../util/Util";
 
 /**
  * Represents a loaded world.
@@ -22,6 +23,8 @@ export class World {
 
     private _biomePalette: Map<number, string> = new Map();
     private _blockInfo: Map<number, Map<string, BlockInfo>> = new Map();
+    private _tileIndex?: TileIndex;
+    private _tileIndexValidators?: Validators;
 
     private _loaded = false;
 
@@ -67,6 +70,8 @@ export class World {
                     this.settings.tileUpdateInterval = settings.tileUpdateInterval;
                     this.settings.ui = settings.ui;
 
+                    this.loadTileIndex();
+
                     // setup renderers
                     for (const renderer of this.settings.renderers) {
                         this._rendererLayers.set(renderer, new DoubleTileLayer(this._pl3xmap, this, renderer));
@@ -99,8 +104,29 @@ export class World {
             });
     }
 
+    /**
+     * Load the tile index, skipping the download and parse when it did not change since the last load.
+     */
+    public loadTileIndex(): Promise<void> {
+        return getBytesIfModified(`tiles/${this.name}/tiles.bin`, this._tileIndexValidators)
+            .then((result?: { buffer: ArrayBuffer, validators: Validators }): void => {
+                if (result != undefined) {
+                    this._tileIndex = new TileIndex(result.buffer);
+                    this._tileIndexValidators = result.validators;
+                }
+            })
+            .catch((e) => console.warn('Could not load tile index', e));
+    }
+
+    /**
+     * Check if a tile was ever rendered. Always true until the tile index has loaded.
+     */
+    public hasTile(zoom: number, x: number, z: number): boolean {
+        return this._tileIndex?.has(zoom, x, z) ?? true;
+    }
+
     public loadBlockInfo(zoom: number, x: number, z: number) {
-        if (!this.settings.ui.blockinfo) {
+        if (!this.settings.ui.blockinfo || zoom > this.settings.zoom.blockInfo || !this.hasTile(zoom, x, z)) {
             return;
         }
         getBytes(`tiles/${this.name}/${zoom}/blockinfo/${x}_${z}.pl3xmap.gz`)
@@ -120,7 +146,15 @@ export class World {
             this.blockInfo.set(zoom, infoMap);
         }
 
-        const blockInfo = buffer == undefined ? null : new BlockInfo(new Uint8Array(buffer));
+        let blockInfo: BlockInfo | null = null;
+        if (buffer != undefined) {
+            try {
+                blockInfo = new BlockInfo(new Uint8Array(buffer));
+            } catch (e) {
+                // reject corrupt tiles the same way the server does
+                console.warn(`Bad blockinfo tile ${this.name}/${zoom}/${x}_${z}`, e);
+            }
+        }
 
         if (blockInfo == null) {
             infoMap.delete(`${x}_${z}`);
@@ -227,7 +261,7 @@ export class World {
     }
 
     private tick(): void {
-        this.currentRendererLayer?.updateTileLayer();
+        this.loadTileIndex().then((): void => this.currentRendererLayer?.updateTileLayer());
         this._timer = setTimeout(() => this.tick(), this.settings.tileUpdateInterval * 1000);
     }
 }